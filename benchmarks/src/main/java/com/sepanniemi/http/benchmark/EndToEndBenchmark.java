@@ -0,0 +1,85 @@
+package com.sepanniemi.http.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sepanniemi.http.client.ReactiveHttpClient;
+import com.sepanniemi.http.client.configuration.ConfigurableCircuitBreaker;
+import com.sepanniemi.http.client.content.Parameters;
+import io.reactivex.Flowable;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests to an in-process server through the complete client pipeline.
+ * <p>
+ * Each operation sends {@code concurrency} requests at once and waits for all of them, so the request throughput
+ * is the operation throughput multiplied by the concurrency, and the sampled time is the latency of the slowest
+ * request of a batch.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    private static final TypeReference<List<Item>> ITEM_LIST = new TypeReference<List<Item>>() {
+    };
+
+    @Param({"1", "100", "10000"})
+    public int items;
+
+    @Param({"1", "16", "64"})
+    public int concurrency;
+
+    @Param({"false", "true"})
+    public boolean circuitBreaker;
+
+    private LocalServer server;
+
+    private ReactiveHttpClient client;
+
+    private Parameters parameters;
+
+    private List<Item> body;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new LocalServer();
+        client = ReactiveHttpClient.builder()
+                .baseUrl(URI.create("http://localhost:" + server.getPort()))
+                .circuitBreaker(circuitBreaker
+                        ? ConfigurableCircuitBreaker.builder().name("benchmark").build().getCircuitBreaker()
+                        : null)
+                .build();
+        parameters = Parameters.builder().parameter("count", Integer.toString(items)).build();
+        body = Item.list(items);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.getHttpClient().stop();
+        server.stop();
+    }
+
+    @Benchmark
+    public List<List<Item>> get() {
+        return Flowable.range(0, concurrency)
+                .flatMapSingle(i -> client.get("/items").parameters(parameters).response(ITEM_LIST), false, concurrency)
+                .map(response -> response.getBody())
+                .toList()
+                .blockingGet();
+    }
+
+    @Benchmark
+    public List<List<Item>> post() {
+        return Flowable.range(0, concurrency)
+                .flatMapSingle(i -> client.post("/items").json(body).response(ITEM_LIST), false, concurrency)
+                .map(response -> response.getBody())
+                .toList()
+                .blockingGet();
+    }
+}
@@ -0,0 +1,24 @@
+package com.sepanniemi.http.benchmark;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Item {
+    private int id;
+    private String name;
+
+    public static List<Item> list(int items) {
+        List<Item> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            list.add(new Item(i, "item-" + i));
+        }
+        return list;
+    }
+}
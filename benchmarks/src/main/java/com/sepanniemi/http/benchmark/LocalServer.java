@@ -0,0 +1,76 @@
+package com.sepanniemi.http.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process Jetty server for the benchmarks.
+ * <p>
+ * {@code GET /items?count=n} responds with a pre-serialized JSON array of n items and {@code POST /items} echoes
+ * the request body, so the server does as little work as possible per request.
+ */
+class LocalServer {
+
+    private final Server server = new Server(0);
+
+    private final Map<Integer, byte[]> payloads = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    LocalServer() throws Exception {
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                response.setStatus(200);
+                response.setContentType("application/json");
+                if ("POST".equals(request.getMethod())) {
+                    echo(request.getInputStream(), response.getOutputStream());
+                } else {
+                    byte[] payload = payload(Integer.parseInt(request.getParameter("count")));
+                    response.setContentLength(payload.length);
+                    response.getOutputStream().write(payload);
+                }
+            }
+        });
+        server.start();
+    }
+
+    int getPort() {
+        return ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    void stop() throws Exception {
+        server.stop();
+    }
+
+    private byte[] payload(int count) {
+        return payloads.computeIfAbsent(count, items -> {
+            try {
+                return objectMapper.writeValueAsBytes(Item.list(items));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void echo(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.sepanniemi.http.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sepanniemi.http.client.ReactiveHttpClient;
+import com.sepanniemi.http.client.ReactiveRequest;
+import com.sepanniemi.http.client.codec.JacksonCodec;
+import com.sepanniemi.http.client.codec.PooledContent;
+import com.sepanniemi.http.client.content.Headers;
+import com.sepanniemi.http.client.content.Parameters;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a request and encoding its JSON content, without sending it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBuildingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int items;
+
+    private ReactiveHttpClient client;
+
+    private JacksonCodec jsonCodec;
+
+    private Headers headers;
+
+    private Parameters parameters;
+
+    private List<Item> body;
+
+    @Setup
+    public void setUp() {
+        client = ReactiveHttpClient.builder().baseUrl(URI.create("http://localhost:8080")).build();
+        jsonCodec = JacksonCodec.json(new ObjectMapper(), new MappedByteBufferPool());
+        headers = Headers.builder().header("x-request-id", "1234").build();
+        parameters = Parameters.builder().parameter("count", "10").build();
+        body = Item.list(items);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.getHttpClient().stop();
+    }
+
+    @Benchmark
+    public ReactiveRequest newRequest() {
+        return client.get("/items").headers(headers).parameters(parameters);
+    }
+
+    @Benchmark
+    public int jsonEncoding() {
+        PooledContent content = jsonCodec.encode(body);
+        int size = content.size();
+        content.release();
+        return size;
+    }
+}
@@ -0,0 +1,69 @@
+package com.sepanniemi.http.benchmark;
+
+import com.sepanniemi.http.client.content.ContentBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares aggregating response content chunks into a {@link ContentBuffer}, with and without pre-sizing from the
+ * Content-Length, against collecting them into a {@link ByteArrayOutputStream} and copying out the content.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseAggregationBenchmark {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Param({"1024", "65536", "1048576"})
+    public int contentLength;
+
+    private ByteBuffer chunk;
+
+    private int chunks;
+
+    @Setup
+    public void setUp() {
+        chunk = ByteBuffer.allocateDirect(Math.min(CHUNK_SIZE, contentLength));
+        chunks = contentLength / chunk.capacity();
+    }
+
+    @Benchmark
+    public byte[] contentBuffer() {
+        ContentBuffer content = new ContentBuffer();
+        for (int i = 0; i < chunks; i++) {
+            chunk.clear();
+            content.append(chunk);
+        }
+        return content.array();
+    }
+
+    @Benchmark
+    public byte[] presizedContentBuffer() {
+        ContentBuffer content = new ContentBuffer();
+        content.reserve(contentLength);
+        for (int i = 0; i < chunks; i++) {
+            chunk.clear();
+            content.append(chunk);
+        }
+        return content.array();
+    }
+
+    @Benchmark
+    public byte[] byteArrayOutputStream() {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] bytes = new byte[chunk.capacity()];
+        for (int i = 0; i < chunks; i++) {
+            chunk.clear();
+            chunk.get(bytes);
+            content.write(bytes, 0, bytes.length);
+        }
+        return content.toByteArray();
+    }
+}
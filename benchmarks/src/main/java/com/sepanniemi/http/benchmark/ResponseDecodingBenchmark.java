@@ -0,0 +1,66 @@
+package com.sepanniemi.http.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sepanniemi.http.client.codec.JacksonCodec;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a response body with {@code ObjectMapper.readValue}, which resolves the type on every call,
+ * against the cached object readers of {@link JacksonCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseDecodingBenchmark {
+
+    private static final TypeReference<List<Item>> ITEM_LIST = new TypeReference<List<Item>>() {
+    };
+
+    @Param({"1", "100"})
+    public int items;
+
+    private ObjectMapper objectMapper;
+
+    private JacksonCodec jsonCodec;
+
+    private byte[] item;
+
+    private byte[] itemList;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        jsonCodec = JacksonCodec.json(objectMapper, new MappedByteBufferPool());
+        List<Item> list = Item.list(items);
+        item = objectMapper.writeValueAsBytes(list.get(0));
+        itemList = objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public Item readValueClass() throws Exception {
+        return objectMapper.readValue(item, 0, item.length, Item.class);
+    }
+
+    @Benchmark
+    public Item cachedReaderClass() {
+        return jsonCodec.decode(item, 0, item.length, Item.class);
+    }
+
+    @Benchmark
+    public List<Item> readValueTypeReference() throws Exception {
+        return objectMapper.readValue(itemList, 0, itemList.length, ITEM_LIST);
+    }
+
+    @Benchmark
+    public List<Item> cachedReaderTypeReference() {
+        return jsonCodec.decode(itemList, 0, itemList.length, ITEM_LIST.getType());
+    }
+}
@@ -0,0 +1,58 @@
+package com.sepanniemi.http.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Splits the response body of a bulk request into the results of the individual calls collected into it.
+ *
+ * @param <I> Type of the items of the calls.
+ * @param <B> Type of the bulk response body.
+ * @param <R> Type of the results of the calls.
+ */
+@FunctionalInterface
+public interface BatchSplitter<I, B, R> {
+
+    /**
+     * Splits the bulk response.
+     *
+     * @param items Items of the batch in the order they were sent.
+     * @param body  Bulk response body.
+     * @return One result for each item in the same order, null for an item without a result.
+     */
+    List<R> split(List<I> items, B body);
+
+    /**
+     * Splits a response that is an array of results in the same order as the items.
+     *
+     * @param <I> Type of the items.
+     * @param <R> Type of the results.
+     * @return Splitter of the results in order.
+     */
+    static <I, R> BatchSplitter<I, List<R>, R> inOrder() {
+        return (items, body) -> body;
+    }
+
+    /**
+     * Splits a response that is an array of results matched to the items by a key, such as an id.
+     *
+     * @param itemKey   Key of an item.
+     * @param resultKey Key of a result.
+     * @param <I>       Type of the items.
+     * @param <R>       Type of the results.
+     * @param <K>       Type of the key.
+     * @return Splitter of the results by key.
+     */
+    static <I, R, K> BatchSplitter<I, List<R>, R> byKey(Function<I, K> itemKey, Function<R, K> resultKey) {
+        return (items, body) -> {
+            Map<K, R> results = new HashMap<>(body.size() * 2);
+            body.forEach(result -> results.put(resultKey.apply(result), result));
+            List<R> split = new ArrayList<>(items.size());
+            items.forEach(item -> split.add(results.get(itemKey.apply(item))));
+            return split;
+        };
+    }
+}
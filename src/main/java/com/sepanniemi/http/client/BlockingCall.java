@@ -0,0 +1,90 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.error.ConcurrencyLimitExceededException;
+import com.sepanniemi.http.client.error.Http4xxException;
+import com.sepanniemi.http.client.error.Http5xxException;
+import com.sepanniemi.http.client.error.HttpException;
+import com.sepanniemi.http.client.error.NoAvailableEndpointException;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bridges the calls to futures and blocking callers.
+ * <p>
+ * Waiting parks the calling thread, so a virtual thread waiting for a response releases its carrier thread.
+ */
+class BlockingCall {
+
+    private BlockingCall() {
+    }
+
+    /**
+     * Subscribes to the call, cancelling the future disposes the call and aborts its exchange.
+     *
+     * @param call Call to make.
+     * @param <T>  Type of the result.
+     * @return Future completed with the result of the call.
+     */
+    static <T> CompletableFuture<T> toFuture(Single<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Disposable subscription = call.subscribe(future::complete, future::completeExceptionally);
+        future.whenComplete((result, failure) -> {
+            if (future.isCancelled()) {
+                subscription.dispose();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Waits for the call to complete. A failure may be shared by coalesced and cached callers, so it is never
+     * thrown as is but wrapped into a new exception of the calling thread, with the failure as the cause. The
+     * failures of the client itself are copied into an exception of the same type, so that they can be caught by
+     * their type, and other failures are wrapped into unchecked exceptions. Errors are rethrown as is.
+     *
+     * @param call Call to make.
+     * @param <T>  Type of the result.
+     * @return Result of the call.
+     * @throws CancellationException When the calling thread is interrupted, the call is cancelled and the interrupt
+     *                               status of the thread is restored.
+     */
+    static <T> T await(Single<T> call) {
+        CompletableFuture<T> future = toFuture(call);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the response.");
+        } catch (ExecutionException e) {
+            throw callerFailure(e.getCause());
+        }
+    }
+
+    private static RuntimeException callerFailure(Throwable failure) {
+        if (failure instanceof Http4xxException) {
+            return new Http4xxException((Http4xxException) failure);
+        } else if (failure instanceof Http5xxException) {
+            return new Http5xxException((Http5xxException) failure);
+        } else if (failure instanceof HttpException) {
+            return new HttpException((HttpException) failure);
+        } else if (failure instanceof ConcurrencyLimitExceededException) {
+            return new ConcurrencyLimitExceededException((ConcurrencyLimitExceededException) failure);
+        } else if (failure instanceof NoAvailableEndpointException) {
+            return new NoAvailableEndpointException((NoAvailableEndpointException) failure);
+        } else if (failure instanceof Error) {
+            // not recoverable, rethrown as is
+            throw (Error) failure;
+        } else if (failure instanceof IOException) {
+            return new UncheckedIOException(failure.getMessage(), (IOException) failure);
+        }
+        return new CompletionException(failure);
+    }
+}
@@ -0,0 +1,284 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.ConcurrencyLimitProperties;
+import com.sepanniemi.http.client.error.ConcurrencyLimitExceededException;
+import com.sepanniemi.http.client.error.HttpException;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.disposables.Disposable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Limits the requests in flight with an additive increase, multiplicative decrease limit adapted to the
+ * observed latencies, shedding the excess requests before they pile up in the request queue.
+ * <p>
+ * Each destination, an endpoint of a load balanced client or the scheme, host and port of the request otherwise,
+ * has a limit of its own, so that a slow destination does not cut the limit of the others.
+ */
+@Slf4j
+public class ConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public ConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Gets the current limit of requests in flight, summed over the destinations.
+     *
+     * @return Concurrency limit.
+     */
+    public int getLimit() {
+        return sum(limit -> limit.limit);
+    }
+
+    /**
+     * Gets the current limit of requests in flight to a destination.
+     *
+     * @param destination Destination as scheme://host:port.
+     * @return Concurrency limit of the destination, or the initial limit when no request has been sent to it.
+     */
+    public int getLimit(String destination) {
+        Limit limit = limits.get(destination);
+        return limit != null ? limit.limit : initialLimit();
+    }
+
+    public int getInFlight() {
+        return sum(limit -> limit.inFlight);
+    }
+
+    public int getQueued() {
+        return sum(limit -> limit.queue.size());
+    }
+
+    /**
+     * Gets the number of requests rejected because the limit was reached and the queue was full.
+     *
+     * @return Number of rejected requests.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Limits the given call, which is subscribed once a slot of the destination is available.
+     *
+     * @param destination Destination the call is sent to.
+     * @param call        Call to limit.
+     * @param <T>         Type of the response.
+     * @return Limited call.
+     */
+    <T> Single<T> limit(String destination, Single<T> call) {
+        return acquire(destination).flatMap(permit -> permit.track(call));
+    }
+
+    /**
+     * Limits the given stream, which is subscribed once a slot of the destination is available and holds the slot
+     * until it terminates or is cancelled.
+     *
+     * @param destination Destination the stream is received from.
+     * @param stream      Stream to limit.
+     * @param <T>         Type of the items.
+     * @return Limited stream.
+     */
+    <T> Flowable<T> limit(String destination, Flowable<T> stream) {
+        // concatMap passes the demand on to the stream as is, flatMapPublisher would prefetch its items
+        return acquire(destination).toFlowable().concatMap(permit -> permit.track(stream));
+    }
+
+    private Single<Permit> acquire(String destination) {
+        return Single.create(emitter -> {
+            Limit limit = limits.computeIfAbsent(destination, key -> new Limit());
+            Permit permit = new Permit(limit, emitter);
+            emitter.setDisposable(permit);
+            boolean start = false;
+            boolean queued = false;
+            synchronized (limit) {
+                if (limit.inFlight < limit.limit) {
+                    limit.inFlight++;
+                    start = true;
+                } else if (limit.queue.size() < properties.getMaxQueued()) {
+                    limit.queue.add(permit);
+                    queued = true;
+                }
+            }
+            if (start) {
+                permit.start();
+            } else if (!queued) {
+                rejected.increment();
+                permit.reject();
+            }
+        });
+    }
+
+    private int initialLimit() {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getInitialLimit(), properties.getMaxLimit()));
+    }
+
+    private int sum(ToIntFunction<Limit> value) {
+        int sum = 0;
+        for (Limit limit : limits.values()) {
+            synchronized (limit) {
+                sum += value.applyAsInt(limit);
+            }
+        }
+        return sum;
+    }
+
+    private boolean isDropped(long latencyNanos, Throwable error) {
+        if (error instanceof TimeoutException || error instanceof IOException) {
+            return true;
+        }
+        if (error instanceof HttpException) {
+            int status = ((HttpException) error).getStatus();
+            if (status == 429 || status == 503) {
+                return true;
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(latencyNanos) > properties.getLatencyThreshold();
+    }
+
+    /**
+     * Limit and waiting requests of a single destination, guarded by its own monitor.
+     */
+    private class Limit {
+
+        private final Queue<Permit> queue = new ArrayDeque<>();
+
+        private volatile int limit = initialLimit();
+
+        private int inFlight;
+
+        private void release(boolean sampled, long latencyNanos, Throwable error) {
+            List<Permit> started = new ArrayList<>();
+            synchronized (this) {
+                if (sampled) {
+                    adjust(latencyNanos, error);
+                }
+                inFlight--;
+                while (inFlight < limit && !queue.isEmpty()) {
+                    inFlight++;
+                    started.add(queue.poll());
+                }
+            }
+            started.forEach(Permit::start);
+        }
+
+        private void adjust(long latencyNanos, Throwable error) {
+            if (isDropped(latencyNanos, error)) {
+                limit = Math.max(properties.getMinLimit(), (int) (limit * properties.getBackoffRatio()));
+                log.debug("Concurrency limit decreased to limit={}", limit);
+            } else if (error == null && inFlight * 2 >= limit) {
+                // grow only while the limit is actually being used
+                limit = Math.min(properties.getMaxLimit(), limit + 1);
+            }
+        }
+
+        private synchronized boolean dequeue(Permit permit) {
+            return queue.remove(permit);
+        }
+    }
+
+    /**
+     * Slot of a single call, handed to the call once granted and released when the call terminates or is disposed.
+     */
+    private class Permit implements Disposable {
+
+        private static final int WAITING = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int DONE = 2;
+
+        private final Limit limit;
+
+        private final SingleEmitter<Permit> emitter;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private volatile boolean subscribed;
+
+        private long start;
+
+        private Permit(Limit limit, SingleEmitter<Permit> emitter) {
+            this.limit = limit;
+            this.emitter = emitter;
+        }
+
+        private void start() {
+            if (state.compareAndSet(WAITING, RUNNING)) {
+                start = System.nanoTime();
+                emitter.onSuccess(this);
+                if (!subscribed) {
+                    // disposed while being handed over, the call never started
+                    release(false, null);
+                }
+            } else {
+                // disposed after being granted a slot, pass the slot on
+                limit.release(false, 0, null);
+            }
+        }
+
+        private void reject() {
+            state.set(DONE);
+            emitter.onError(new ConcurrencyLimitExceededException("Concurrency limit reached, limit=" + limit.limit));
+        }
+
+        private <T> Single<T> track(Single<T> call) {
+            return call
+                    .doOnSubscribe(d -> subscribed = true)
+                    .doOnSuccess(value -> release(true, null))
+                    .doOnError(error -> release(true, error))
+                    .doOnDispose(() -> release(false, null));
+        }
+
+        private <T> Flowable<T> track(Flowable<T> stream) {
+            return stream
+                    .doOnSubscribe(s -> subscribed = true)
+                    .doOnComplete(() -> release(true, null))
+                    .doOnError(error -> release(true, error))
+                    .doOnCancel(() -> release(false, null));
+        }
+
+        private void release(boolean sampled, Throwable error) {
+            if (state.compareAndSet(RUNNING, DONE)) {
+                limit.release(sampled, System.nanoTime() - start, error);
+            }
+        }
+
+        /**
+         * Gives up waiting for a slot, a granted slot is released by the call it was handed to.
+         */
+        @Override
+        public void dispose() {
+            if (state.compareAndSet(WAITING, DONE)) {
+                // when already granted a slot, start() passes it on
+                limit.dequeue(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return state.get() == DONE;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.codec.PooledContent;
+import com.sepanniemi.http.client.configuration.CompressionProperties;
+import org.eclipse.jetty.client.ContentDecoder;
+import org.eclipse.jetty.client.GZIPContentDecoder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.CountingCallback;
+import org.eclipse.jetty.util.component.Destroyable;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Negotiated compression of the response content and gzip compression of large request bodies.
+ * <p>
+ * The accepted encodings are sent in the {@code Accept-Encoding} header and the responses are decoded chunk by
+ * chunk as their content arrives, before it is aggregated or streamed, so a compressed body is never held in
+ * memory as a whole. The decoding is done here rather than by the decoders built into Jetty, which match only
+ * the first of several registered encodings.
+ */
+public class ContentCompression {
+
+    static final String GZIP = "gzip";
+
+    static final String DEFLATE = "deflate";
+
+    private static final int DECODER_BUFFER_SIZE = 8192;
+
+    private final CompressionProperties compressionProperties;
+
+    private final LongAdder compressedBytes = new LongAdder();
+
+    private final LongAdder decodedBytes = new LongAdder();
+
+    private final LongAdder requestBytes = new LongAdder();
+
+    private final LongAdder compressedRequestBytes = new LongAdder();
+
+    public ContentCompression(CompressionProperties compressionProperties) {
+        for (String encoding : compressionProperties.getAcceptEncodings()) {
+            if (!GZIP.equalsIgnoreCase(encoding) && !DEFLATE.equalsIgnoreCase(encoding)) {
+                throw new IllegalArgumentException("Unsupported content encoding=" + encoding);
+            }
+        }
+        this.compressionProperties = compressionProperties;
+    }
+
+    /**
+     * Gets the number of compressed response content bytes received.
+     *
+     * @return Number of bytes before decoding.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * Gets the number of response content bytes decoded from the compressed content.
+     *
+     * @return Number of bytes after decoding.
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    /**
+     * Gets the number of request body bytes that were compressed before sending.
+     *
+     * @return Number of bytes before compression.
+     */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * Gets the number of compressed request body bytes sent.
+     *
+     * @return Number of bytes after compression.
+     */
+    public long getCompressedRequestBytes() {
+        return compressedRequestBytes.sum();
+    }
+
+    /**
+     * Takes over the decoding of the responses from the client by removing its built-in decoders.
+     *
+     * @param httpClient Client to decode the responses of.
+     */
+    void install(HttpClient httpClient) {
+        httpClient.getContentDecoderFactories().clear();
+    }
+
+    /**
+     * Sends the accepted encodings with the request unless it declares them already.
+     *
+     * @param exchange Exchange to send.
+     */
+    void prepare(Request exchange) {
+        if (!compressionProperties.getAcceptEncodings().isEmpty()
+                && !exchange.getHeaders().containsKey(HttpHeader.ACCEPT_ENCODING.asString())) {
+            exchange.header(HttpHeader.ACCEPT_ENCODING, String.join(", ", compressionProperties.getAcceptEncodings()));
+        }
+    }
+
+    /**
+     * Compresses the encoded request content with gzip when it is at least the size of the threshold and the
+     * request does not declare a content encoding already.
+     *
+     * @param exchange Exchange the content is sent with.
+     * @param content  Encoded request content, released when compressed.
+     * @return Content to send.
+     */
+    PooledContent compress(Request exchange, PooledContent content) {
+        int threshold = compressionProperties.getRequestCompressionThreshold();
+        if (threshold < 0 || content.size() < threshold
+                || exchange.getHeaders().containsKey(HttpHeader.CONTENT_ENCODING.asString())) {
+            return content;
+        }
+        requestBytes.add(content.size());
+        PooledContent compressed = content.gzip(compressionProperties.getRequestCompressionLevel());
+        compressedRequestBytes.add(compressed.size());
+        exchange.header(HttpHeader.CONTENT_ENCODING, GZIP);
+        return compressed;
+    }
+
+    /**
+     * Wraps a response listener to receive the content decoded when it is in one of the accepted encodings.
+     *
+     * @param listener Listener of the response.
+     * @return Decoding listener.
+     */
+    Response.Listener decoding(Response.Listener listener) {
+        return new DecodingListener(listener);
+    }
+
+    private ContentDecoder newDecoder(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String encoding = contentEncoding.trim();
+        if (compressionProperties.getAcceptEncodings().stream().noneMatch(encoding::equalsIgnoreCase)) {
+            return null;
+        }
+        return GZIP.equalsIgnoreCase(encoding) ? new GZIPContentDecoder(DECODER_BUFFER_SIZE) : new DeflateDecoder();
+    }
+
+    private class DecodingListener extends Response.Listener.Adapter {
+
+        private final Response.Listener listener;
+
+        private ContentDecoder decoder;
+
+        private DecodingListener(Response.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onBegin(Response response) {
+            listener.onBegin(response);
+        }
+
+        @Override
+        public boolean onHeader(Response response, HttpField field) {
+            return listener.onHeader(response, field);
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            decoder = newDecoder(response.getHeaders().get(HttpHeader.CONTENT_ENCODING));
+            listener.onHeaders(response);
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content, Callback callback) {
+            if (decoder == null) {
+                listener.onContent(response, content, callback);
+                return;
+            }
+            List<ByteBuffer> decoded = new ArrayList<>(2);
+            try {
+                compressedBytes.add(content.remaining());
+                while (content.hasRemaining()) {
+                    ByteBuffer chunk = decoder.decode(content);
+                    if (chunk.hasRemaining()) {
+                        decodedBytes.add(chunk.remaining());
+                        decoded.add(chunk);
+                    }
+                }
+            } catch (RuntimeException e) {
+                callback.failed(e);
+                return;
+            }
+            if (decoded.isEmpty()) {
+                callback.succeeded();
+                return;
+            }
+            // the received content is consumed once all the chunks decoded from it are
+            Callback consumed = new CountingCallback(callback, decoded.size());
+            for (ByteBuffer chunk : decoded) {
+                listener.onContent(response, chunk, consumed);
+            }
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            listener.onSuccess(response);
+        }
+
+        @Override
+        public void onFailure(Response response, Throwable failure) {
+            listener.onFailure(response, failure);
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            try {
+                listener.onComplete(result);
+            } finally {
+                // frees the native inflater also when the content was truncated, aborted or cancelled
+                if (decoder instanceof Destroyable) {
+                    ((Destroyable) decoder).destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decoder of the deflate encoding, accepting both the zlib format of the specification and the raw deflate
+     * format some servers send instead.
+     */
+    private static class DeflateDecoder implements ContentDecoder, Destroyable {
+
+        private Inflater inflater;
+
+        @Override
+        public ByteBuffer decode(ByteBuffer buffer) {
+            if (!buffer.hasRemaining()) {
+                return BufferUtil.EMPTY_BUFFER;
+            }
+            if (inflater == null) {
+                inflater = new Inflater(!isZlib(buffer));
+            }
+            if (inflater.finished()) {
+                buffer.position(buffer.limit());
+                return BufferUtil.EMPTY_BUFFER;
+            }
+            byte[] input = new byte[buffer.remaining()];
+            buffer.get(input);
+            inflater.setInput(input);
+            ByteBuffer decoded = ByteBuffer.allocate(Math.max(input.length * 4, DECODER_BUFFER_SIZE));
+            try {
+                while (!inflater.finished()) {
+                    if (!decoded.hasRemaining()) {
+                        decoded = ByteBuffer.allocate(decoded.capacity() * 2).put((ByteBuffer) decoded.flip());
+                    }
+                    int length = inflater.inflate(decoded.array(), decoded.position(), decoded.remaining());
+                    decoded.position(decoded.position() + length);
+                    if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                }
+            } catch (DataFormatException e) {
+                inflater.end();
+                throw new UncheckedIOException(new ZipException("Invalid deflate content: " + e.getMessage()));
+            }
+            if (inflater.finished()) {
+                inflater.end();
+            }
+            decoded.flip();
+            return decoded;
+        }
+
+        @Override
+        public void destroy() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+
+        private static boolean isZlib(ByteBuffer buffer) {
+            if (buffer.remaining() < 2) {
+                return (buffer.get(buffer.position()) & 0x0F) == 8;
+            }
+            int header = (buffer.get(buffer.position()) & 0xFF) << 8 | buffer.get(buffer.position() + 1) & 0xFF;
+            return (header & 0x0F00) == 0x0800 && header % 31 == 0;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.metrics.ClientGauges;
+import org.eclipse.jetty.client.AbstractConnectionPool;
+import org.eclipse.jetty.client.ConnectionPool;
+import org.eclipse.jetty.client.DuplexConnectionPool;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.eclipse.jetty.client.api.Destination;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Gauges of a client summed over the connection pools of its destinations.
+ */
+class DestinationGauges implements ClientGauges {
+
+    private final HttpClient httpClient;
+
+    private final AtomicInteger inFlight;
+
+    DestinationGauges(HttpClient httpClient, AtomicInteger inFlight) {
+        this.httpClient = httpClient;
+        this.inFlight = inFlight;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public int getQueuedRequests() {
+        return sum(HttpDestination::getQueuedRequestCount);
+    }
+
+    @Override
+    public int getConnections() {
+        return sum(destination -> {
+            ConnectionPool pool = destination.getConnectionPool();
+            return pool instanceof AbstractConnectionPool ? ((AbstractConnectionPool) pool).getConnectionCount() : 0;
+        });
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return sum(destination -> {
+            ConnectionPool pool = destination.getConnectionPool();
+            return pool instanceof DuplexConnectionPool ? ((DuplexConnectionPool) pool).getActiveConnectionCount() : 0;
+        });
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return sum(destination -> {
+            ConnectionPool pool = destination.getConnectionPool();
+            return pool instanceof DuplexConnectionPool ? ((DuplexConnectionPool) pool).getIdleConnectionCount() : 0;
+        });
+    }
+
+    private int sum(ToIntFunction<HttpDestination> gauge) {
+        int sum = 0;
+        for (Destination destination : httpClient.getDestinations()) {
+            if (destination instanceof HttpDestination) {
+                sum += gauge.applyAsInt((HttpDestination) destination);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,100 @@
+package com.sepanniemi.http.client;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Endpoint the requests of a client are balanced to, with its requests in flight, latency and circuit breaker.
+ */
+public class Endpoint {
+
+    /**
+     * Cost of an endpoint that has requests in flight but no latency measured yet, so that it is not flooded
+     * before its first response.
+     */
+    private static final double UNMEASURED_PENALTY = 1e12;
+
+    private final URI uri;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final long latencyDecayNanos;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double latency;
+
+    private long lastMeasured = -1;
+
+    Endpoint(URI uri, CircuitBreaker circuitBreaker, long latencyDecayNanos) {
+        this.uri = uri;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyDecayNanos = latencyDecayNanos;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Gets the circuit breaker of the endpoint.
+     *
+     * @return Circuit breaker, or null when endpoints are not ejected.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Gets the moving average latency of the endpoint, which follows latency increases immediately and decays
+     * from them over time.
+     *
+     * @return Latency in nanoseconds, zero before the first response.
+     */
+    public synchronized double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Checks whether requests are sent to the endpoint, which they are not while its circuit is open.
+     *
+     * @return True when the endpoint is available.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker == null || circuitBreaker.isCallPermitted();
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+    }
+
+    synchronized void completed(long latencyNanos) {
+        outstanding.decrementAndGet();
+        long now = System.nanoTime();
+        if (lastMeasured < 0 || latencyNanos > latency) {
+            latency = latencyNanos;
+        } else {
+            double weight = Math.exp(-(double) (now - lastMeasured) / latencyDecayNanos);
+            latency = latency * weight + latencyNanos * (1 - weight);
+        }
+        lastMeasured = now;
+    }
+
+    void cancelled() {
+        outstanding.decrementAndGet();
+    }
+
+    synchronized double cost() {
+        int inFlight = outstanding.get();
+        if (lastMeasured < 0) {
+            return inFlight == 0 ? 0 : UNMEASURED_PENALTY + inFlight;
+        }
+        return latency * (inFlight + 1);
+    }
+}
@@ -0,0 +1,35 @@
+package com.sepanniemi.http.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves the endpoints the requests of a client are balanced across, such as the replicas of a service in a
+ * service registry. Endpoints are given as a scheme, host and port.
+ * <p>
+ * Endpoints are resolved for every exchange, so implementations should return a list kept up to date in the
+ * background rather than look the endpoints up on every call.
+ */
+@FunctionalInterface
+public interface EndpointResolver {
+
+    /**
+     * Gets the current endpoints.
+     *
+     * @return Endpoints to balance the requests across.
+     */
+    List<URI> resolve();
+
+    /**
+     * Creates a resolver of a fixed list of endpoints.
+     *
+     * @param endpoints Endpoints to balance the requests across.
+     * @return Endpoint resolver.
+     */
+    static EndpointResolver of(List<URI> endpoints) {
+        List<URI> resolved = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        return () -> resolved;
+    }
+}
@@ -0,0 +1,67 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.codec.Codec;
+import com.sepanniemi.http.client.content.ContentBuffer;
+import com.sepanniemi.http.client.error.HttpException;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Captures the content of an unsuccessful response for its {@link HttpException}, up to a maximum size.
+ * <p>
+ * Content beyond the maximum size is consumed from the connection without being buffered, so that large error pages
+ * do not pile up in memory with the exceptions holding them.
+ */
+class ErrorBody {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final Response response;
+
+    private final int maxSize;
+
+    private final Codec codec;
+
+    private ContentBuffer content;
+
+    private boolean truncated;
+
+    ErrorBody(Response response, int maxSize, Codec codec) {
+        this.response = response;
+        this.maxSize = Math.max(maxSize, 0);
+        this.codec = codec;
+    }
+
+    /**
+     * Captures the remaining bytes of the buffer that fit within the maximum size, consuming the whole buffer.
+     *
+     * @param buffer Content chunk.
+     */
+    void append(ByteBuffer buffer) {
+        int length = Math.min(buffer.remaining(), maxSize - size());
+        if (length > 0) {
+            if (content == null) {
+                long contentLength = response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH.asString());
+                content = new ContentBuffer(contentLength > 0 ? (int) Math.min(contentLength, maxSize)
+                        : Math.min(DEFAULT_CAPACITY, maxSize));
+            }
+            ByteBuffer captured = buffer.slice();
+            captured.limit(length);
+            content.append(captured);
+        }
+        if (buffer.remaining() > length) {
+            truncated = true;
+        }
+        buffer.position(buffer.limit());
+    }
+
+    HttpException toException() {
+        return ReactiveRequest.httpException(response, content != null ? content.toByteArray() : null, truncated, codec);
+    }
+
+    private int size() {
+        return content != null ? content.size() : 0;
+    }
+}
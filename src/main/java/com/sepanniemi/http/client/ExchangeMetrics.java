@@ -0,0 +1,75 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.metrics.ClientMetrics;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures a single exchange and reports it to the client metrics once completed.
+ */
+class ExchangeMetrics implements Request.QueuedListener, Response.BeginListener, Response.ContentListener,
+        Response.CompleteListener {
+
+    private final ClientMetrics metrics;
+
+    private final AtomicInteger inFlight;
+
+    private final String route;
+
+    /**
+     * Time the exchange was attached, replaced by the time it was queued once it is.
+     */
+    private long start = System.nanoTime();
+
+    private boolean queued;
+
+    private long firstByte = -1;
+
+    private long bytes;
+
+    private ExchangeMetrics(ClientMetrics metrics, AtomicInteger inFlight, String route) {
+        this.metrics = metrics;
+        this.inFlight = inFlight;
+        this.route = route;
+    }
+
+    static void attach(Request exchange, ClientMetrics metrics, AtomicInteger inFlight, String route) {
+        ExchangeMetrics listener = new ExchangeMetrics(metrics, inFlight, route);
+        exchange.onRequestQueued(listener)
+                .onResponseBegin(listener)
+                .onResponseContent(listener)
+                .onComplete(listener);
+    }
+
+    @Override
+    public void onQueued(Request request) {
+        start = System.nanoTime();
+        queued = true;
+        inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onBegin(Response response) {
+        firstByte = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onContent(Response response, ByteBuffer content) {
+        bytes += content.remaining();
+    }
+
+    @Override
+    public void onComplete(Result result) {
+        // an exchange rejected before reaching the destination queue completes without having been queued
+        if (queued) {
+            inFlight.decrementAndGet();
+        }
+        Response response = result.getResponse();
+        int status = firstByte >= 0 && response != null ? response.getStatus() : 0;
+        metrics.exchangeCompleted(route, status, System.nanoTime() - start, firstByte, bytes, result.getFailure());
+    }
+}
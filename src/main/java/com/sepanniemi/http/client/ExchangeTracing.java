@@ -0,0 +1,145 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.tracing.ClientSpan;
+import com.sepanniemi.http.client.tracing.SpanExporter;
+import com.sepanniemi.http.client.tracing.TraceParent;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Propagates the trace context of a request in its exchanges and records a client span of each exchange.
+ */
+class ExchangeTracing implements Request.QueuedListener, Request.BeginListener, Request.SuccessListener,
+        Response.BeginListener, Response.CompleteListener {
+
+    private static final String BAGGAGE_HEADER = "baggage";
+
+    private final SpanExporter exporter;
+
+    private final TraceParent span;
+
+    private final TraceParent parent;
+
+    private final String name;
+
+    /**
+     * Start of the span, taken when the listener is attached and again once the exchange is queued, so that an
+     * exchange rejected before reaching the destination queue still has one.
+     */
+    private Instant start = Instant.now();
+
+    private long queued = System.nanoTime();
+
+    private long begin = -1;
+
+    private long sent = -1;
+
+    private long firstByte = -1;
+
+    private ExchangeTracing(SpanExporter exporter, TraceParent span, TraceParent parent, String name) {
+        this.exporter = exporter;
+        this.span = span;
+        this.parent = parent;
+        this.name = name;
+    }
+
+    /**
+     * Injects the trace context into the exchange as a child of the given parent, starting a new trace when there
+     * is no parent and spans are exported.
+     */
+    static void attach(Request exchange, SpanExporter exporter, TraceParent parent, Map<String, String> baggage,
+                       String name) {
+        boolean exported = exporter != SpanExporter.NOOP;
+        if (parent == null && !exported) {
+            return;
+        }
+        TraceParent span = parent != null ? parent.child() : TraceParent.newRoot();
+        exchange.getHeaders().put(TraceParent.HEADER, span.toHeader());
+        if (!baggage.isEmpty()) {
+            exchange.getHeaders().put(BAGGAGE_HEADER, baggageHeader(baggage));
+        }
+        if (exported && span.isSampled()) {
+            ExchangeTracing listener = new ExchangeTracing(exporter, span, parent, name);
+            exchange.onRequestQueued(listener)
+                    .onRequestBegin(listener)
+                    .onRequestSuccess(listener)
+                    .onResponseBegin(listener)
+                    .onComplete(listener);
+        }
+    }
+
+    @Override
+    public void onQueued(Request request) {
+        start = Instant.now();
+        queued = System.nanoTime();
+    }
+
+    @Override
+    public void onBegin(Request request) {
+        begin = System.nanoTime();
+    }
+
+    @Override
+    public void onSuccess(Request request) {
+        sent = System.nanoTime();
+    }
+
+    @Override
+    public void onBegin(Response response) {
+        firstByte = System.nanoTime();
+    }
+
+    @Override
+    public void onComplete(Result result) {
+        long end = System.nanoTime();
+        Request request = result.getRequest();
+        Response response = result.getResponse();
+        // a server may respond before the request content has been sent completely
+        long requestEnd = sent >= 0 && (firstByte < 0 || sent <= firstByte) ? sent : firstByte;
+        exporter.export(ClientSpan.builder()
+                .traceId(span.getTraceId())
+                .spanId(span.getSpanId())
+                .parentSpanId(parent != null ? parent.getSpanId() : null)
+                .name(name)
+                .method(request.getMethod())
+                .url(request.getURI().toString())
+                .start(start)
+                .status(firstByte >= 0 && response != null ? response.getStatus() : 0)
+                .failure(result.getFailure())
+                .queueNanos(between(queued, begin >= 0 ? begin : end))
+                .sendNanos(between(begin, requestEnd))
+                .timeToFirstByteNanos(between(requestEnd, firstByte))
+                .bodyNanos(between(firstByte, end))
+                .durationNanos(end - queued)
+                .build());
+    }
+
+    private static long between(long from, long to) {
+        return from >= 0 && to >= 0 ? to - from : -1;
+    }
+
+    private static String baggageHeader(Map<String, String> baggage) {
+        StringBuilder header = new StringBuilder();
+        baggage.forEach((key, value) -> {
+            if (header.length() > 0) {
+                header.append(',');
+            }
+            header.append(key).append('=').append(encode(value));
+        });
+        return header.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.sepanniemi.http.client;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.util.DeferredContentProvider;
+import org.eclipse.jetty.util.Callback;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Request content provider that sends the chunks of a publisher as the request body.
+ * <p>
+ * The publisher is subscribed when the request begins and the next chunk is requested only after the previous
+ * one has been written to the connection, so at most one chunk of the body is held in memory at a time.
+ */
+class FlowableContentProvider extends DeferredContentProvider implements Subscriber<ByteBuffer> {
+
+    private final Request request;
+
+    private final Publisher<ByteBuffer> content;
+
+    private final AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+    private FlowableContentProvider(Request request, Publisher<ByteBuffer> content) {
+        this.request = request;
+        this.content = content;
+    }
+
+    /**
+     * Sets the given publisher as the streamed content of the request.
+     *
+     * @param request     Request to send the content with.
+     * @param contentType Content type of the request body.
+     * @param content     Request body chunks.
+     */
+    static void attach(Request request, String contentType, Publisher<ByteBuffer> content) {
+        FlowableContentProvider provider = new FlowableContentProvider(request, content);
+        request.content(provider, contentType)
+                .onRequestBegin(r -> provider.start())
+                .onRequestFailure((r, failure) -> provider.cancel());
+    }
+
+    private void start() {
+        if (subscription.get() == null) {
+            content.subscribe(this);
+        }
+    }
+
+    private void cancel() {
+        Subscription current = subscription.get();
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (subscription.compareAndSet(null, s)) {
+            s.request(1);
+        } else {
+            s.cancel();
+        }
+    }
+
+    @Override
+    public void onNext(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            subscription.get().request(1);
+            return;
+        }
+        offer(buffer, new Callback() {
+            @Override
+            public void succeeded() {
+                subscription.get().request(1);
+            }
+
+            @Override
+            public void failed(Throwable failure) {
+                cancel();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable failure) {
+        request.abort(failure);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+}
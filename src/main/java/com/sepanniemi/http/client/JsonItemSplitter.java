@@ -0,0 +1,159 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.content.ContentBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incrementally splits streamed JSON content into the encoded bytes of its items.
+ * <p>
+ * Content starting with {@code [} is treated as a top level JSON array and each array element is an item,
+ * any other content is treated as newline delimited JSON where each non blank line is an item.
+ * Only the bytes of the item currently being received are buffered.
+ */
+class JsonItemSplitter {
+
+    private enum Mode {
+        UNKNOWN, ARRAY, LINES, DONE
+    }
+
+    private final ContentBuffer item = new ContentBuffer();
+
+    private Mode mode = Mode.UNKNOWN;
+
+    private int depth;
+
+    private boolean inString;
+
+    private boolean escaped;
+
+    private boolean inItem;
+
+    private boolean containerItem;
+
+    /**
+     * Feeds the next content chunk, consuming it.
+     *
+     * @param chunk Content chunk.
+     * @return Items completed by this chunk, in order.
+     */
+    List<byte[]> split(ByteBuffer chunk) {
+        List<byte[]> items = Collections.emptyList();
+        int start = chunk.position();
+        int segmentStart = inItem ? start : -1;
+        for (int i = start; i < chunk.limit(); i++) {
+            byte b = chunk.get(i);
+            if (mode == Mode.DONE) {
+                break;
+            }
+            if (mode == Mode.UNKNOWN) {
+                if (isWhitespace(b)) {
+                    continue;
+                }
+                mode = b == '[' ? Mode.ARRAY : Mode.LINES;
+                if (mode == Mode.ARRAY) {
+                    depth = 1;
+                    continue;
+                }
+            }
+            if (!inItem) {
+                if (isWhitespace(b) || (mode == Mode.ARRAY && b == ',')) {
+                    continue;
+                }
+                if (mode == Mode.ARRAY && b == ']') {
+                    mode = Mode.DONE;
+                    continue;
+                }
+                inItem = true;
+                containerItem = b == '{' || b == '[';
+                segmentStart = i;
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            int itemDepth = mode == Mode.ARRAY ? 1 : 0;
+            if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && depth > itemDepth) {
+                depth--;
+                if (depth == itemDepth && containerItem && mode == Mode.ARRAY) {
+                    items = emit(items, chunk, segmentStart, i + 1);
+                }
+            } else if (depth == itemDepth && isItemEnd(b)) {
+                items = emit(items, chunk, segmentStart, i);
+                if (b == ']') {
+                    mode = Mode.DONE;
+                }
+            }
+        }
+        if (inItem) {
+            append(chunk, segmentStart, chunk.limit());
+        }
+        chunk.position(chunk.limit());
+        return items;
+    }
+
+    /**
+     * Completes the split once all content has been received.
+     *
+     * @return The last item when the content ended without a trailing delimiter.
+     */
+    List<byte[]> finish() {
+        if (mode == Mode.ARRAY || inString || depth > (mode == Mode.LINES ? 0 : 1)) {
+            throw new IllegalStateException("Incomplete JSON content, stream ended in the middle of an item.");
+        }
+        if (inItem) {
+            inItem = false;
+            return Collections.singletonList(takeItem());
+        }
+        return Collections.emptyList();
+    }
+
+    private boolean isItemEnd(byte b) {
+        return mode == Mode.ARRAY ? b == ',' || b == ']' : b == '\n';
+    }
+
+    private List<byte[]> emit(List<byte[]> items, ByteBuffer chunk, int from, int to) {
+        append(chunk, from, to);
+        inItem = false;
+        List<byte[]> result = items.isEmpty() ? new ArrayList<>() : items;
+        result.add(takeItem());
+        return result;
+    }
+
+    private byte[] takeItem() {
+        int length = item.size();
+        byte[] bytes = item.array();
+        while (length > 0 && isWhitespace(bytes[length - 1])) {
+            length--;
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, 0, result, 0, length);
+        item.clear();
+        return result;
+    }
+
+    private void append(ByteBuffer chunk, int from, int to) {
+        if (to > from) {
+            ByteBuffer segment = chunk.duplicate();
+            segment.limit(to).position(from);
+            item.append(segment);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,55 @@
+package com.sepanniemi.http.client;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of the most recent latencies, with a periodically refreshed percentile.
+ */
+class LatencyWindow {
+
+    private final long[] latencies;
+
+    private final double percentile;
+
+    private final int refreshInterval;
+
+    private int next;
+
+    private int size;
+
+    private int recordedSinceRefresh;
+
+    private volatile long percentileValue = -1;
+
+    LatencyWindow(int windowSize, double percentile) {
+        this.latencies = new long[Math.max(windowSize, 1)];
+        this.percentile = percentile;
+        this.refreshInterval = Math.max(latencies.length / 10, 1);
+    }
+
+    synchronized void record(long latencyMillis) {
+        latencies[next] = latencyMillis;
+        next = (next + 1) % latencies.length;
+        size = Math.min(size + 1, latencies.length);
+        if (++recordedSinceRefresh >= refreshInterval) {
+            recordedSinceRefresh = 0;
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            percentileValue = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the percentile of the latencies as of the last refresh.
+     *
+     * @return Percentile latency in milliseconds, negative until the first refresh.
+     */
+    long getPercentile() {
+        return percentileValue;
+    }
+}
@@ -0,0 +1,215 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.ConfigurableCircuitBreaker;
+import com.sepanniemi.http.client.configuration.LoadBalancingProperties;
+import com.sepanniemi.http.client.error.NoAvailableEndpointException;
+import com.sepanniemi.http.client.metrics.ClientMetrics;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balances the exchanges of a client across its endpoints, skipping the endpoints whose circuit is open.
+ * <p>
+ * Each exchange chooses its endpoint when it is sent, so retries and hedges of a request are balanced too.
+ */
+@Slf4j
+public class LoadBalancer {
+
+    private final EndpointResolver endpointResolver;
+
+    private final LoadBalancingProperties loadBalancingProperties;
+
+    private final ClientMetrics metrics;
+
+    private final ConcurrentMap<URI, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public LoadBalancer(EndpointResolver endpointResolver, LoadBalancingProperties loadBalancingProperties) {
+        this(endpointResolver, loadBalancingProperties, ClientMetrics.NOOP);
+    }
+
+    /**
+     * Creates a load balancer reporting the state transitions of the endpoint circuit breakers to the given metrics.
+     *
+     * @param endpointResolver        Resolver of the endpoints.
+     * @param loadBalancingProperties Load balancing properties.
+     * @param metrics                 Metrics of the client.
+     */
+    public LoadBalancer(EndpointResolver endpointResolver, LoadBalancingProperties loadBalancingProperties,
+                        ClientMetrics metrics) {
+        this.endpointResolver = endpointResolver;
+        this.loadBalancingProperties = loadBalancingProperties;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the currently resolved endpoints to allow monitoring them.
+     *
+     * @return Endpoints.
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpointsOf(endpointResolver.resolve());
+    }
+
+    /**
+     * Chooses the endpoint of an exchange among the available endpoints.
+     *
+     * @return Endpoint to send the exchange to.
+     * @throws NoAvailableEndpointException When no endpoint is available.
+     */
+    Endpoint select() {
+        List<Endpoint> resolved = getEndpoints();
+        List<Endpoint> available = new ArrayList<>(resolved.size());
+        for (Endpoint endpoint : resolved) {
+            if (endpoint.isAvailable()) {
+                available.add(endpoint);
+            }
+        }
+        if (available.isEmpty()) {
+            throw new NoAvailableEndpointException("No endpoint available out of " + resolved.size() + " endpoints.");
+        }
+        switch (loadBalancingProperties.getStrategy()) {
+            case LEAST_OUTSTANDING:
+                return leastOutstanding(available);
+            case POWER_OF_TWO_CHOICES:
+                return powerOfTwoChoices(available);
+            case ROUND_ROBIN:
+            default:
+                return available.get(Math.floorMod(next.getAndIncrement(), available.size()));
+        }
+    }
+
+    /**
+     * Tracks the requests in flight, latency and failures of the endpoint from the exchange sent to it.
+     *
+     * @param exchange Exchange sent to the endpoint.
+     * @param endpoint Endpoint chosen for the exchange.
+     */
+    void attach(Request exchange, Endpoint endpoint) {
+        EndpointExchange listener = new EndpointExchange(endpoint);
+        exchange.onRequestQueued(listener).onComplete(listener);
+    }
+
+    private Endpoint leastOutstanding(List<Endpoint> available) {
+        // start from a rotating offset so that ties are spread across the endpoints
+        int offset = Math.floorMod(next.getAndIncrement(), available.size());
+        Endpoint least = null;
+        for (int i = 0; i < available.size(); i++) {
+            Endpoint endpoint = available.get((offset + i) % available.size());
+            if (least == null || endpoint.getOutstanding() < least.getOutstanding()) {
+                least = endpoint;
+            }
+        }
+        return least;
+    }
+
+    private Endpoint powerOfTwoChoices(List<Endpoint> available) {
+        if (available.size() == 1) {
+            return available.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(available.size());
+        int second = random.nextInt(available.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a = available.get(first);
+        Endpoint b = available.get(second);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    private List<Endpoint> endpointsOf(List<URI> uris) {
+        if (endpoints.size() > uris.size()) {
+            endpoints.keySet().retainAll(uris);
+        }
+        List<Endpoint> resolved = new ArrayList<>(uris.size());
+        for (URI uri : uris) {
+            resolved.add(endpoints.computeIfAbsent(uri, this::newEndpoint));
+        }
+        return resolved;
+    }
+
+    private Endpoint newEndpoint(URI uri) {
+        CircuitBreaker circuitBreaker = null;
+        if (loadBalancingProperties.getCircuitProperties() != null) {
+            circuitBreaker = ConfigurableCircuitBreaker.builder()
+                    .name("http-client-endpoint-" + uri.getAuthority())
+                    .circuitProperties(loadBalancingProperties.getCircuitProperties())
+                    .build()
+                    .getCircuitBreaker();
+            if (metrics != ClientMetrics.NOOP) {
+                circuitBreaker.getEventPublisher().onStateTransition(event -> metrics.endpointCircuitBreakerTransition(
+                        uri,
+                        event.getStateTransition().getFromState(),
+                        event.getStateTransition().getToState()));
+            }
+        }
+        log.debug("Resolved new endpoint uri={}", uri);
+        return new Endpoint(uri, circuitBreaker, TimeUnit.MILLISECONDS.toNanos(loadBalancingProperties.getLatencyDecay()));
+    }
+
+    private static class EndpointExchange implements Request.QueuedListener, Response.CompleteListener {
+
+        private final Endpoint endpoint;
+
+        private long start;
+
+        private boolean queued;
+
+        private EndpointExchange(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void onQueued(Request request) {
+            start = System.nanoTime();
+            queued = true;
+            endpoint.started();
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            Throwable failure = result.getFailure();
+            if (failure instanceof CancellationException) {
+                // aborted by the caller, says nothing about the health of the endpoint
+                if (queued) {
+                    endpoint.cancelled();
+                }
+                return;
+            }
+            if (!queued) {
+                // rejected before reaching the destination queue, it never reached the endpoint
+                return;
+            }
+            CircuitBreaker circuitBreaker = endpoint.getCircuitBreaker();
+            long latency = System.nanoTime() - start;
+            endpoint.completed(latency);
+            if (circuitBreaker == null) {
+                return;
+            }
+            Response response = result.getResponse();
+            if (failure != null) {
+                circuitBreaker.onError(latency, failure);
+            } else if (!HttpStatus.isSuccess(response.getStatus()) && !HttpStatus.isRedirection(response.getStatus())) {
+                circuitBreaker.onError(latency, ReactiveRequest.httpException(response, null));
+            } else {
+                circuitBreaker.onSuccess(latency);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.sepanniemi.http.client;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.reactivex.Completable;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquires rate limiter permits without blocking.
+ * <p>
+ * When no permit is available and the rate limiter has a timeout the request waits on a timer for the next refresh
+ * of the permits, until it gets one or the timeout passes. Otherwise it fails right away with
+ * {@link RequestNotPermitted}.
+ */
+class RateLimiterPermits {
+
+    private RateLimiterPermits() {
+    }
+
+    static Completable acquire(RateLimiter rateLimiter) {
+        return Completable.defer(() -> {
+            if (rateLimiter.getPermission(Duration.ZERO)) {
+                return Completable.complete();
+            }
+            RateLimiterConfig config = rateLimiter.getRateLimiterConfig();
+            long timeout = config.getTimeoutDuration().toNanos();
+            if (timeout <= 0) {
+                return Completable.error(notPermitted(rateLimiter));
+            }
+            return awaitRefresh(rateLimiter, config.getLimitRefreshPeriod().toNanos(), System.nanoTime() + timeout);
+        });
+    }
+
+    /**
+     * Waits a refresh period, or what is left of the timeout, before asking for a permit again. Permits are only
+     * added when a refresh period starts, so asking more often would not find any.
+     */
+    private static Completable awaitRefresh(RateLimiter rateLimiter, long refreshPeriod, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return Completable.error(notPermitted(rateLimiter));
+        }
+        return Completable.timer(Math.min(Math.max(refreshPeriod, 1), remaining), TimeUnit.NANOSECONDS)
+                .andThen(Completable.defer(() -> rateLimiter.getPermission(Duration.ZERO)
+                        ? Completable.complete()
+                        : awaitRefresh(rateLimiter, refreshPeriod, deadline)));
+    }
+
+    private static RequestNotPermitted notPermitted(RateLimiter rateLimiter) {
+        return new RequestNotPermitted("Request not permitted by rate limiter=" + rateLimiter.getName());
+    }
+}
@@ -0,0 +1,188 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.codec.PooledBufferOutputStream;
+import com.sepanniemi.http.client.codec.PooledContent;
+import com.sepanniemi.http.client.content.CompletedResponse;
+import com.sepanniemi.http.client.content.ResponseHeaders;
+import io.reactivex.SingleEmitter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.Callback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Function;
+
+/**
+ * Receives the content of a successful response as is, without decoding it, into a target chosen by the subclass.
+ * <p>
+ * The content of an unsuccessful response is captured for the {@link com.sepanniemi.http.client.error.HttpException}
+ * instead, so it never reaches the target.
+ *
+ * @param <T> Type of the response body completed from the received content.
+ */
+@Slf4j
+abstract class RawResponseListener<T> extends Response.Listener.Adapter {
+
+    private static final int DEFAULT_CAPACITY = 8 * 1024;
+
+    /**
+     * Upper bound for pre-sizing from a Content-Length header, so a bogus header cannot trigger a huge allocation.
+     */
+    private static final int MAX_PRESIZE_CAPACITY = 16 * 1024 * 1024;
+
+    private final SingleEmitter<CompletedResponse<T>> emitter;
+
+    private final Function<Response, ErrorBody> errorBody;
+
+    private ErrorBody errorContent;
+
+    private RawResponseListener(SingleEmitter<CompletedResponse<T>> emitter, Function<Response, ErrorBody> errorBody) {
+        this.emitter = emitter;
+        this.errorBody = errorBody;
+    }
+
+    /**
+     * Aggregates the content into a single buffer, borrowed from the pool when small enough, copying each chunk once
+     * from the network buffer. The body is released if the response is not delivered to the subscriber.
+     */
+    static RawResponseListener<PooledContent> toPooledContent(SingleEmitter<CompletedResponse<PooledContent>> emitter,
+                                                              Function<Response, ErrorBody> errorBody,
+                                                              ByteBufferPool bufferPool) {
+        return new RawResponseListener<PooledContent>(emitter, errorBody) {
+            private PooledBufferOutputStream output;
+
+            @Override
+            void begin(Response response) {
+                long contentLength = response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH.asString());
+                int capacity = contentLength > 0 ? (int) Math.min(contentLength, MAX_PRESIZE_CAPACITY) : DEFAULT_CAPACITY;
+                output = new PooledBufferOutputStream(bufferPool, capacity, true);
+            }
+
+            @Override
+            void receive(ByteBuffer content) {
+                output.write(content);
+            }
+
+            @Override
+            PooledContent complete() {
+                PooledContent content = output.toContent();
+                output = null;
+                return content;
+            }
+
+            @Override
+            void discard(PooledContent body) {
+                if (body != null) {
+                    body.release();
+                } else if (output != null) {
+                    output.discard();
+                    output = null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the content to a blocking channel as it arrives, the next chunk is read from the connection only once
+     * the previous one has been written. The body is the number of bytes written.
+     */
+    static RawResponseListener<Long> toChannel(SingleEmitter<CompletedResponse<Long>> emitter,
+                                               Function<Response, ErrorBody> errorBody,
+                                               WritableByteChannel channel) {
+        return new RawResponseListener<Long>(emitter, errorBody) {
+            private long written;
+
+            @Override
+            void receive(ByteBuffer content) throws IOException {
+                while (content.hasRemaining()) {
+                    written += channel.write(content);
+                }
+            }
+
+            @Override
+            Long complete() {
+                return written;
+            }
+        };
+    }
+
+    void begin(Response response) {
+    }
+
+    abstract void receive(ByteBuffer content) throws IOException;
+
+    abstract T complete();
+
+    /**
+     * Releases whatever was received when the response is not delivered.
+     *
+     * @param body Completed body, or null when the response did not complete.
+     */
+    void discard(T body) {
+    }
+
+    @Override
+    public void onHeaders(Response response) {
+        if (HttpStatus.isSuccess(response.getStatus())) {
+            begin(response);
+        } else {
+            errorContent = errorBody.apply(response);
+        }
+    }
+
+    @Override
+    public void onContent(Response response, ByteBuffer content, Callback callback) {
+        try {
+            if (errorContent != null) {
+                errorContent.append(content);
+            } else {
+                receive(content);
+            }
+        } catch (IOException | RuntimeException e) {
+            // failing the callback aborts the response
+            callback.failed(e);
+            return;
+        }
+        callback.succeeded();
+    }
+
+    @Override
+    public void onComplete(Result result) {
+        log.debug("Completed raw result={}", result);
+        if (result.isFailed() || emitter.isDisposed()) {
+            discard(null);
+            if (!emitter.isDisposed()) {
+                emitter.onError(result.getFailure());
+            }
+            return;
+        }
+        Response response = result.getResponse();
+        if (errorContent != null) {
+            emitter.onError(errorContent.toException());
+            return;
+        }
+        T body;
+        try {
+            body = complete();
+        } catch (RuntimeException e) {
+            discard(null);
+            emitter.onError(e);
+            return;
+        }
+        if (emitter.isDisposed()) {
+            discard(body);
+            return;
+        }
+        emitter.onSuccess(CompletedResponse.<T>builder()
+                .status(response.getStatus())
+                .headers(new ResponseHeaders(response.getHeaders()))
+                .body(body)
+                .build());
+    }
+}
@@ -1,47 +1,161 @@
 package com.sepanniemi.http.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sepanniemi.http.client.configuration.BatchingProperties;
 import com.sepanniemi.http.client.configuration.ClientConfiguration;
+import com.sepanniemi.http.client.configuration.ClientProperties;
+import com.sepanniemi.http.client.content.CompletedResponse;
+import com.sepanniemi.http.client.metrics.ClientMetrics;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.ratelimiter.RateLimiter;
 import lombok.Builder;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
 import org.eclipse.jetty.client.ProxyConfiguration;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
 import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
 import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 import java.net.URI;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 @Slf4j
 public class ReactiveHttpClient {
 
     private static final String PATCH = "PATCH";
 
+    /**
+     * Path segments taken for identifiers in default routes: numbers, UUIDs and long hexadecimal strings.
+     */
+    private static final Pattern ID_SEGMENT =
+            Pattern.compile("\\d+|\\p{XDigit}{8}(-\\p{XDigit}{4}){3}-\\p{XDigit}{12}|\\p{XDigit}{16,}");
+
     private URI baseUrl;
 
     private final HttpClient httpClient;
 
     private CircuitBreaker circuitBreaker;
 
+    private RateLimiter rateLimiter;
+
+    private RequestHedging requestHedging;
+
+    private RequestRetry requestRetry;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private ResponseCache responseCache;
+
+    private RequestCoalescing requestCoalescing;
+
+    private ContentCompression contentCompression;
+
+    private LoadBalancer loadBalancer;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
     @Builder.Default
     private ClientConfiguration clientConfiguration = ClientConfiguration.builder().build();
 
     @Builder
     @SneakyThrows
     private ReactiveHttpClient(URI baseUrl,
+                               List<URI> endpoints,
+                               EndpointResolver endpointResolver,
                                ClientConfiguration clientConfiguration,
-                               CircuitBreaker circuitBreaker) {
+                               CircuitBreaker circuitBreaker,
+                               RateLimiter rateLimiter) {
 
-        httpClient = new HttpClient();
         if(clientConfiguration != null ){
             this.clientConfiguration = clientConfiguration;
         }
-        httpClient.setConnectTimeout(this.clientConfiguration.getClientProperties().getConnectionTimeout());
+        ClientProperties clientProperties = this.clientConfiguration.getClientProperties();
+        httpClient = new HttpClient(newTransport(clientProperties), null);
+        httpClient.setConnectTimeout(clientProperties.getConnectionTimeout());
+        httpClient.setMaxConnectionsPerDestination(clientProperties.getMaxConnectionsPerDestination());
+        httpClient.setMaxRequestsQueuedPerDestination(clientProperties.getMaxRequestsQueuedPerDestination());
+        httpClient.setIdleTimeout(clientProperties.getIdleTimeout());
+        httpClient.setByteBufferPool(this.clientConfiguration.getBufferPool());
+        if (clientProperties.isVirtualThreads()) {
+            httpClient.setExecutor(VirtualThreads.newExecutor("reactive-http-client"));
+        } else {
+            QueuedThreadPool executor = new QueuedThreadPool(clientProperties.getMaxThreads(), clientProperties.getMinThreads());
+            executor.setName("reactive-http-client");
+            httpClient.setExecutor(executor);
+        }
         httpClient.start();
+        if (endpointResolver == null && endpoints != null && !endpoints.isEmpty()) {
+            endpointResolver = EndpointResolver.of(endpoints);
+        }
+        if (endpointResolver != null) {
+            this.loadBalancer = new LoadBalancer(endpointResolver, this.clientConfiguration.getLoadBalancingProperties(),
+                    this.clientConfiguration.getMetrics());
+            if (baseUrl == null) {
+                baseUrl = endpointResolver.resolve().stream().findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Base URL or at least one endpoint is required."));
+            }
+        }
         this.baseUrl = baseUrl;
         this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+        registerMetrics(this.clientConfiguration.getMetrics());
+        if (this.clientConfiguration.getHedgingProperties() != null) {
+            this.requestHedging = new RequestHedging(this.clientConfiguration.getHedgingProperties());
+        }
+        if (this.clientConfiguration.getRetryProperties() != null) {
+            this.requestRetry = new RequestRetry(this.clientConfiguration.getRetryProperties());
+        }
+        if (this.clientConfiguration.getConcurrencyLimitProperties() != null) {
+            this.concurrencyLimiter = new ConcurrencyLimiter(this.clientConfiguration.getConcurrencyLimitProperties());
+        }
+        if (this.clientConfiguration.getCacheProperties() != null) {
+            this.responseCache = new ResponseCache(this.clientConfiguration.getCacheProperties(),
+                    this.clientConfiguration.getCoalescingProperties());
+        }
+        if (this.clientConfiguration.getCoalescingProperties() != null) {
+            this.requestCoalescing = new RequestCoalescing(this.clientConfiguration.getCoalescingProperties());
+        }
+        if (this.clientConfiguration.getCompressionProperties() != null) {
+            this.contentCompression = new ContentCompression(this.clientConfiguration.getCompressionProperties());
+            this.contentCompression.install(httpClient);
+        }
+    }
+
+    private void registerMetrics(ClientMetrics metrics) {
+        if (metrics == ClientMetrics.NOOP) {
+            return;
+        }
+        metrics.registerGauges(new DestinationGauges(httpClient, inFlight));
+        if (circuitBreaker != null) {
+            circuitBreaker.getEventPublisher().onStateTransition(event -> metrics.circuitBreakerTransition(
+                    event.getCircuitBreakerName(),
+                    event.getStateTransition().getFromState(),
+                    event.getStateTransition().getToState()));
+        }
+    }
+
+    private static HttpClientTransport newTransport(ClientProperties clientProperties) {
+        switch (clientProperties.getTransport()) {
+            case H2C:
+                HTTP2Client http2Client = new HTTP2Client();
+                http2Client.setSelectors(clientProperties.getSelectors());
+                HttpClientTransportOverHTTP2 transport = new HttpClientTransportOverHTTP2(http2Client);
+                transport.setUseALPN(false);
+                return transport;
+            case HTTP_1_1:
+            default:
+                return new HttpClientTransportOverHTTP(clientProperties.getSelectors());
+        }
     }
 
     /**
@@ -62,6 +176,85 @@ public class ReactiveHttpClient {
         return httpClient;
     }
 
+    /**
+     * Gets the hedging of idempotent requests to allow monitoring how often hedges fire and win.
+     *
+     * @return Request hedging, or null when hedging is not configured.
+     */
+    public RequestHedging getRequestHedging() {
+        return requestHedging;
+    }
+
+    /**
+     * Gets the retrying of failed requests to allow monitoring the retries and the retry budget.
+     *
+     * @return Request retry, or null when retries are not configured.
+     */
+    public RequestRetry getRequestRetry() {
+        return requestRetry;
+    }
+
+    /**
+     * Gets the adaptive limiter of the requests in flight to allow monitoring its current limit.
+     *
+     * @return Concurrency limiter, or null when the concurrency is not limited.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Gets the response cache to allow monitoring and clearing it.
+     *
+     * @return Response cache, or null when caching is not configured.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Gets the coalescing of identical requests in flight to allow monitoring how many requests were coalesced.
+     *
+     * @return Request coalescing, or null when coalescing is not configured.
+     */
+    public RequestCoalescing getRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Gets the content compression to allow monitoring the compressed and decoded content sizes.
+     *
+     * @return Content compression, or null when compression is not configured.
+     */
+    public ContentCompression getContentCompression() {
+        return contentCompression;
+    }
+
+    /**
+     * Gets the load balancer to allow monitoring the endpoints.
+     *
+     * @return Load balancer, or null when the client has a single base URL.
+     */
+    public LoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    ClientConfiguration getClientConfiguration() {
+        return clientConfiguration;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    AtomicInteger getInFlight() {
+        return inFlight;
+    }
+
     @SneakyThrows
     public ReactiveRequest get(String path) {
         return newRequest(HttpMethod.GET.name(), path);
@@ -85,6 +278,33 @@ public class ReactiveHttpClient {
     }
 
 
+    /**
+     * Creates a batcher collecting individual calls into bulk requests.
+     *
+     * @param bulkRequest        Creates the bulk request of the items of a batch, such as
+     *                           {@code items -> client.post("/items/bulk").json(items)}.
+     * @param responseType       Type of the bulk response body.
+     * @param splitter           Splits the bulk response body into the results of the items.
+     * @param batchingProperties Size and linger time of the batches.
+     * @param <I>                Type of the items of the calls.
+     * @param <B>                Type of the bulk response body.
+     * @param <R>                Type of the results of the calls.
+     * @return Request batcher.
+     */
+    public <I, B, R> RequestBatcher<I, R> batcher(Function<List<I>, ReactiveRequest> bulkRequest,
+                                                  TypeReference<B> responseType,
+                                                  BatchSplitter<I, B, R> splitter,
+                                                  BatchingProperties batchingProperties) {
+        return new RequestBatcher<>(items -> bulkRequest.apply(items)
+                .response(responseType)
+                .map(response -> CompletedResponse.<List<R>>builder()
+                        .status(response.getStatus())
+                        .headers(response.getHeaders())
+                        .body(splitter.split(items, response.getBody()))
+                        .build()),
+                batchingProperties);
+    }
+
     @SneakyThrows
     private ReactiveRequest newRequest(String method, String path) {
         Request request =
@@ -93,6 +313,29 @@ public class ReactiveHttpClient {
                         .timeout(clientConfiguration.getClientProperties().getRequestTimeout(), TimeUnit.MILLISECONDS)
                         .method(method);
 
-        return new ReactiveRequest(request, clientConfiguration, circuitBreaker);
+        return new ReactiveRequest(this, request, path);
+    }
+
+    /**
+     * Default route of a request, the method and the path without its query, with identifiers replaced by
+     * {@code {id}} so that the requests of a resource share a route and the number of routes stays bounded.
+     */
+    static String routeOf(String method, String path) {
+        int end = path.length();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = path.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        String[] segments = path.substring(0, end).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = "{id}";
+            }
+        }
+        return method + " " + String.join("/", segments);
     }
 }
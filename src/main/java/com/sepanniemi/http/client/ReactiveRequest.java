@@ -1,33 +1,63 @@
 package com.sepanniemi.http.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.sepanniemi.http.client.codec.Codec;
+import com.sepanniemi.http.client.codec.CodecRegistry;
+import com.sepanniemi.http.client.codec.JacksonCodec;
+import com.sepanniemi.http.client.codec.PooledContent;
 import com.sepanniemi.http.client.configuration.ClientConfiguration;
 import com.sepanniemi.http.client.content.CompletedResponse;
+import com.sepanniemi.http.client.content.ContentBuffer;
 import com.sepanniemi.http.client.content.Headers;
 import com.sepanniemi.http.client.content.Parameters;
+import com.sepanniemi.http.client.content.ResponseHeaders;
+import com.sepanniemi.http.client.context.ClientContext;
+import com.sepanniemi.http.client.error.DeadlineExceededException;
 import com.sepanniemi.http.client.error.Http4xxException;
 import com.sepanniemi.http.client.error.Http5xxException;
 import com.sepanniemi.http.client.error.HttpException;
+import com.sepanniemi.http.client.metrics.ClientMetrics;
+import com.sepanniemi.http.client.tracing.SpanExporter;
+import com.sepanniemi.http.client.tracing.TraceParent;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
 import io.reactivex.Single;
 import io.reactivex.SingleEmitter;
-import io.reactivex.SingleOnSubscribe;
-import io.reactivex.SingleOperator;
-import lombok.SneakyThrows;
+import io.reactivex.SingleTransformer;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.api.Result;
-import org.eclipse.jetty.client.util.BytesContentProvider;
-import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.client.util.ByteBufferContentProvider;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.Map;
-
-import static java.util.stream.Collectors.toMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Created by sepanniemi on 28/02/2018.
@@ -35,34 +65,200 @@ import static java.util.stream.Collectors.toMap;
 @Slf4j
 public class ReactiveRequest {
 
-    private enum ContentType {
-        JSON, XML
-    }
+    private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+
+    private static final byte[] EMPTY_JSON_ARRAY = {'[', ']'};
 
-    private static final String APPLICATION_JSON_CHARSET_UTF_8 = "application/json;charset=UTF-8";
+    private static final byte[] JSON_ARRAY_END = {']'};
 
+    /**
+     * Number of content chunks requested ahead while decoding streamed items.
+     */
+    private static final int STREAM_PREFETCH = 2;
+
+    /**
+     * Client creating the exchanges, or null when the template is sent as is.
+     */
+    private final HttpClient httpClient;
+
+    /**
+     * Template of the request, each exchange sends a copy of it.
+     */
     private Request request;
 
     private ClientConfiguration clientConfiguration;
 
     private CircuitBreaker circuitBreaker;
 
-    private ContentType contentType;
+    private RateLimiter rateLimiter;
+
+    private RequestHedging requestHedging;
+
+    private RequestRetry requestRetry;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private ResponseCache responseCache;
+
+    private RequestCoalescing requestCoalescing;
+
+    private ContentCompression contentCompression;
+
+    private LoadBalancer loadBalancer;
+
+    private ClientMetrics metrics;
+
+    private AtomicInteger inFlight;
+
+    private final String path;
+
+    /**
+     * Route of the metrics and spans, derived from the path when first needed unless set explicitly.
+     */
+    private String route;
+
+    private TraceParent traceParent;
+
+    private Map<String, String> baggage = Collections.emptyMap();
+
+    private Codec contentCodec;
+
+    private Object content;
+
+    private Codec expectedCodec;
+
+    private Instant deadline;
+
+    private String bodyContentType;
 
+    private Flowable<ByteBuffer> body;
 
+    private boolean hedged = true;
+
+    private boolean retried = true;
+
+    private boolean cached = true;
+
+    private boolean coalesced = true;
+
+
+    /**
+     * Creates a request sent through the given circuit breaker only, without the hedging, retries, limiters,
+     * caching, compression and load balancing of a {@link ReactiveHttpClient}. The given Jetty request is sent as
+     * is, so the request can be subscribed to only once.
+     *
+     * @param request             Request to send.
+     * @param clientConfiguration Configuration of the codecs, buffer pool and metrics.
+     * @param circuitBreaker      Circuit breaker of the request, or null.
+     * @deprecated Create requests with {@link ReactiveHttpClient} instead, this constructor is kept for
+     * compatibility and will be removed.
+     */
+    @Deprecated
     public ReactiveRequest(Request request, ClientConfiguration clientConfiguration, CircuitBreaker circuitBreaker) {
+        this(null, request, request.getPath(), clientConfiguration, circuitBreaker,
+                new AtomicInteger());
+    }
+
+    ReactiveRequest(ReactiveHttpClient client, Request request, String path) {
+        this(client.getHttpClient(), request, path, client.getClientConfiguration(), client.getCircuitBreaker(),
+                client.getInFlight());
+        this.rateLimiter = client.getRateLimiter();
+        this.requestHedging = client.getRequestHedging();
+        this.requestRetry = client.getRequestRetry();
+        this.concurrencyLimiter = client.getConcurrencyLimiter();
+        this.responseCache = client.getResponseCache();
+        this.requestCoalescing = client.getRequestCoalescing();
+        this.contentCompression = client.getContentCompression();
+        this.loadBalancer = client.getLoadBalancer();
+    }
+
+    private ReactiveRequest(HttpClient httpClient,
+                            Request request,
+                            String path,
+                            ClientConfiguration clientConfiguration,
+                            CircuitBreaker circuitBreaker,
+                            AtomicInteger inFlight) {
+        this.httpClient = httpClient;
         this.request = request;
+        this.path = path;
+        this.metrics = clientConfiguration.getMetrics();
+        this.inFlight = inFlight;
         this.clientConfiguration = clientConfiguration;
         this.circuitBreaker = circuitBreaker;
     }
 
     public ReactiveRequest json(Object content) {
-        request.content(new BytesContentProvider(APPLICATION_JSON_CHARSET_UTF_8, writeJsonBytes(content)));
-        //we expect the result to be json also.
-        this.contentType = ContentType.JSON;
+        return content(JacksonCodec.APPLICATION_JSON, content);
+    }
+
+    /**
+     * Sets the request content, encoded with the codec registered for the given media type.
+     * <p>
+     * The response is expected in the same media type when it does not declare its content type.
+     *
+     * @param mediaType Media type of the request content, such as {@code application/x-jackson-smile}.
+     * @param content   Request content.
+     * @return This request.
+     */
+    public ReactiveRequest content(String mediaType, Object content) {
+        this.contentCodec = clientConfiguration.getCodecs().get(mediaType);
+        this.content = content;
+        this.expectedCodec = contentCodec;
         return this;
     }
 
+    /**
+     * Asks for the response in the given media type, which is also used to decode a response that does not
+     * declare its content type.
+     *
+     * @param mediaType Accepted media type.
+     * @return This request.
+     */
+    public ReactiveRequest accept(String mediaType) {
+        this.expectedCodec = clientConfiguration.getCodecs().get(mediaType);
+        request.accept(mediaType);
+        return this;
+    }
+
+    /**
+     * Streams the items of the given publisher as a JSON array request body.
+     * <p>
+     * Items are serialized one at a time as the connection is ready to write more content.
+     *
+     * @param items Items of the JSON array.
+     * @return This request.
+     */
+    public ReactiveRequest jsonStream(Flowable<?> items) {
+        Codec jsonCodec = clientConfiguration.getCodecs().get(JacksonCodec.APPLICATION_JSON);
+        Flowable<ByteBuffer> content = Flowable.defer(() -> {
+            AtomicBoolean first = new AtomicBoolean(true);
+            return items
+                    .map(item -> writeJsonItem(jsonCodec, item, first.getAndSet(false) ? '[' : ','))
+                    .concatWith(Flowable.fromCallable(() -> ByteBuffer.wrap(first.get() ? EMPTY_JSON_ARRAY : JSON_ARRAY_END)));
+        });
+        body(jsonCodec.getContentType(), content);
+        this.expectedCodec = jsonCodec;
+        return this;
+    }
+
+    /**
+     * Streams the given content chunks as the request body.
+     *
+     * @param contentType Content type of the request body.
+     * @param content     Request body chunks.
+     * @return This request.
+     */
+    public ReactiveRequest body(String contentType, Flowable<ByteBuffer> content) {
+        this.bodyContentType = contentType;
+        this.body = content;
+        this.contentCodec = null;
+        return this;
+    }
+
+    public ReactiveRequest body(Flowable<ByteBuffer> content) {
+        return body(APPLICATION_OCTET_STREAM, content);
+    }
+
     public ReactiveRequest headers(Headers headers) {
         headers.getHeaders().forEach(request::header);
         return this;
@@ -73,118 +269,626 @@ public class ReactiveRequest {
         return this;
     }
 
+    /**
+     * Overrides the configured request timeout for this request.
+     *
+     * @param timeout Timeout for handling the request - response.
+     * @return This request.
+     */
+    public ReactiveRequest timeout(Duration timeout) {
+        request.timeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Sets an absolute deadline for the request. The request fails fast without being sent if the deadline has
+     * passed, otherwise the request timeout is limited to the time remaining until the deadline.
+     *
+     * @param deadline Deadline of the request.
+     * @return This request.
+     */
+    public ReactiveRequest deadline(Instant deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Enables or disables hedging of this request when hedging is configured for the client.
+     * <p>
+     * Only idempotent requests without a streamed body are hedged.
+     *
+     * @param hedged Whether the request may be hedged, true by default.
+     * @return This request.
+     */
+    public ReactiveRequest hedged(boolean hedged) {
+        this.hedged = hedged;
+        return this;
+    }
+
+    /**
+     * Enables or disables retrying this request when retries are configured for the client.
+     * <p>
+     * Requests with a streamed body are not retried.
+     *
+     * @param retried Whether the request may be retried, true by default.
+     * @return This request.
+     */
+    public ReactiveRequest retried(boolean retried) {
+        this.retried = retried;
+        return this;
+    }
+
+    /**
+     * Enables or disables serving this request from the response cache when caching is configured for the client.
+     * <p>
+     * Only GET requests are cached.
+     *
+     * @param cached Whether the response may be served from and stored in the cache, true by default.
+     * @return This request.
+     */
+    public ReactiveRequest cached(boolean cached) {
+        this.cached = cached;
+        return this;
+    }
+
+    /**
+     * Enables or disables sharing the exchange of this request with identical requests in flight when coalescing
+     * is configured for the client.
+     * <p>
+     * Only GET and HEAD requests are coalesced.
+     *
+     * @param coalesced Whether the request may share an exchange, true by default.
+     * @return This request.
+     */
+    public ReactiveRequest coalesced(boolean coalesced) {
+        this.coalesced = coalesced;
+        return this;
+    }
+
+    /**
+     * Sets the route the metrics and spans of this request are recorded under. By default the route is the method
+     * and the path of the request without its query, with numeric, UUID and long hexadecimal segments replaced by
+     * {@code {id}}. Requests with other identifiers in their path, such as names, must set a shared route like
+     * {@code GET /users/{name}}, or every identifier ends up as a route of its own.
+     *
+     * @param route Route of the request.
+     * @return This request.
+     */
+    public ReactiveRequest route(String route) {
+        this.route = route;
+        return this;
+    }
+
+    /**
+     * Limits the rate of this request with the given rate limiter instead of the one of the client,
+     * typically one shared by all the requests of a route.
+     *
+     * @param rateLimiter Rate limiter of the route.
+     * @return This request.
+     */
+    public ReactiveRequest rateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * Makes the request in the given caller context, applying its headers and deadline and sending each exchange
+     * as a child span of its trace context.
+     *
+     * @param context Caller context.
+     * @return This request.
+     */
+    public ReactiveRequest context(ClientContext context) {
+        context.getHeaders().forEach(request::header);
+        if (context.getDeadline() != null) {
+            deadline(context.getDeadline());
+        }
+        if (context.getTraceParent() != null) {
+            this.traceParent = TraceParent.parse(context.getTraceParent());
+        }
+        this.baggage = context.getBaggage();
+        return this;
+    }
+
     public <T> Single<CompletedResponse<T>> response(Class<T> responseType) {
-        return Single
-                .create(sendForResponse(request, responseType))
-                .lift(fused());
+        return responseOf(responseType);
     }
 
-    private <T> SingleOperator<T, T> fused() {
-        if (circuitBreaker != null) {
-            return CircuitBreakerOperator.of(circuitBreaker);
-        } else {
-            return downstream -> downstream;
+    /**
+     * Sends the request and deserializes the response body into a generic type such as {@code List<Foo>}.
+     *
+     * @param responseType Type reference of the response body.
+     * @param <T>          Type of the response body.
+     * @return Completed response.
+     */
+    public <T> Single<CompletedResponse<T>> response(TypeReference<T> responseType) {
+        return responseOf(responseType.getType());
+    }
+
+    public <T> Single<CompletedResponse<T>> response(JavaType responseType) {
+        return responseOf(responseType);
+    }
+
+    /**
+     * Sends the request and waits for the response, for callers that block rather than subscribe, such as those
+     * running on virtual threads. The request goes through the same resilience pipeline as {@link #response(Class)}.
+     *
+     * @param responseType Type of the response body.
+     * @param <T>          Type of the response body.
+     * @return Completed response.
+     * @throws HttpException When the response status is not successful.
+     * @throws java.io.UncheckedIOException When the exchange fails on an I/O error.
+     * @throws CancellationException When the waiting thread is interrupted.
+     */
+    public <T> CompletedResponse<T> execute(Class<T> responseType) {
+        return BlockingCall.await(responseOf(responseType));
+    }
+
+    /**
+     * Sends the request and waits for the response body of a generic type such as {@code List<Foo>}.
+     *
+     * @param responseType Type reference of the response body.
+     * @param <T>          Type of the response body.
+     * @return Completed response.
+     * @see #execute(Class)
+     */
+    public <T> CompletedResponse<T> execute(TypeReference<T> responseType) {
+        return BlockingCall.await(responseOf(responseType.getType()));
+    }
+
+    /**
+     * Sends the request and completes the future with the response. Cancelling the future aborts the request.
+     *
+     * @param responseType Type of the response body.
+     * @param <T>          Type of the response body.
+     * @return Future of the completed response.
+     */
+    public <T> CompletableFuture<CompletedResponse<T>> responseFuture(Class<T> responseType) {
+        return BlockingCall.toFuture(responseOf(responseType));
+    }
+
+    public <T> CompletableFuture<CompletedResponse<T>> responseFuture(TypeReference<T> responseType) {
+        return BlockingCall.toFuture(responseOf(responseType.getType()));
+    }
+
+    private <T> Single<CompletedResponse<T>> responseOf(Type responseType) {
+        if (isCached()) {
+            return Single.defer(() -> responseCache.lookup(request, responseType,
+                    lookup -> coalesce(responseType, call(responseType, lookup))));
         }
+        return coalesce(responseType, call(responseType, null));
     }
 
-    @SneakyThrows
-    private byte[] writeJsonBytes(Object content) {
-        return clientConfiguration.getObjectMapper().writer().writeValueAsBytes(content);
+    private <T> Single<CompletedResponse<T>> coalesce(Type responseType, Single<CompletedResponse<T>> call) {
+        return isCoalesced() ? requestCoalescing.coalesce(request, responseType, call) : call;
     }
 
-    @SneakyThrows
-    private <T> T readBytes(byte[] bytes, Class<T> responseType) {
-        if (ContentType.JSON.equals(contentType)) {
-            return readJsonBytes(bytes, responseType);
-        } else {
-            throw new UnsupportedOperationException("XML Deserialization not supported yet.");
+    private <T> Single<CompletedResponse<T>> call(Type responseType, ResponseCache.Lookup lookup) {
+        return call(send(emitter -> onResponse(emitter, responseType, lookup), lookup));
+    }
+
+    private <T> Single<CompletedResponse<T>> call(Single<CompletedResponse<T>> exchange) {
+        Single<CompletedResponse<T>> call = Single.defer(() -> {
+            if (isDeadlineExceeded()) {
+                return Single.error(deadlineExceeded());
+            }
+            // hedged attempts are combined before the circuit breaker, so they count as a single call
+            return (isHedged() ? requestHedging.hedge(exchange) : exchange).compose(fused());
+        });
+        // retries go through the circuit breaker one by one, and are not sent once it has opened
+        return isRetried() ? requestRetry.retry(call, isIdempotent(), deadline) : call;
+    }
+
+    /**
+     * Sends the request and receives the response body as is, into a buffer borrowed from the client's buffer pool.
+     * <p>
+     * The content is copied once from the network buffers and is neither decoded nor cached, which suits callers
+     * that only pass the bytes on or hash them. Compressed content is still decoded. The caller must
+     * {@link PooledContent#release() release} the body once done with it.
+     * <p>
+     * The request is neither retried nor hedged, so that no pooled body is left behind by an attempt that lost.
+     *
+     * @return Completed response with the pooled body.
+     */
+    public Single<CompletedResponse<PooledContent>> responseBytes() {
+        return Single.defer(() -> isDeadlineExceeded()
+                ? Single.<CompletedResponse<PooledContent>>error(deadlineExceeded())
+                : this.<PooledContent>send(emitter -> RawResponseListener.toPooledContent(emitter, this::errorBody,
+                        clientConfiguration.getBufferPool()), null)
+                .compose(fused()));
+    }
+
+    /**
+     * Sends the request and writes the response body to a channel as it is received, so that the body is never
+     * held in memory as a whole.
+     * <p>
+     * Content is read from the connection only as fast as it is written to the channel, which should be in blocking
+     * mode. The request is neither retried nor hedged as the channel may have been written to already. The body of
+     * an unsuccessful response is not written to the channel.
+     *
+     * @param channel Channel to write the body to, not closed by the request.
+     * @return Completed response with the number of bytes written as the body.
+     */
+    public Single<CompletedResponse<Long>> responseTo(WritableByteChannel channel) {
+        return Single.defer(() -> isDeadlineExceeded()
+                ? Single.<CompletedResponse<Long>>error(deadlineExceeded())
+                : this.<Long>send(emitter -> RawResponseListener.toChannel(emitter, this::errorBody, channel), null)
+                .compose(fused()));
+    }
+
+    /**
+     * Sends the request and writes the response body to a file as it is received, replacing any existing file.
+     * <p>
+     * The file is closed once the response completes, and deleted if the request fails or is disposed.
+     *
+     * @param file File to write the body to.
+     * @return Completed response with the number of bytes written as the body.
+     * @see #responseTo(WritableByteChannel)
+     */
+    public Single<CompletedResponse<Long>> responseTo(Path file) {
+        return Single.<CompletedResponse<Long>, FileChannel>using(
+                () -> FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                channel -> responseTo(channel)
+                        .doOnError(failure -> discard(channel, file))
+                        .doOnDispose(() -> discard(channel, file)),
+                FileChannel::close);
+    }
+
+    /**
+     * Closes the channel before deleting its partially written file, which some platforms refuse to delete while
+     * it is open.
+     */
+    private static void discard(FileChannel channel, Path file) throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Streams the raw response content chunks as they are received from the connection.
+     * <p>
+     * Content is read from the connection only as fast as the subscriber requests it.
+     *
+     * @return Response content chunks.
+     */
+    public Flowable<ByteBuffer> responseStream() {
+        return Flowable.defer(() -> isDeadlineExceeded()
+                ? Flowable.error(deadlineExceeded())
+                : limitedStream(endpoint -> Flowable.fromPublisher(
+                        new ResponseContentPublisher(() -> prepare(endpoint), this::decoding, this::errorBody)))
+                .compose(fusedStream()));
+    }
+
+    /**
+     * Streams the items of a response containing either a top level JSON array or newline delimited JSON.
+     * <p>
+     * Items are decoded as their content arrives, only the item currently being received is buffered.
+     *
+     * @param itemType Type of the items.
+     * @param <T>      Type of the items.
+     * @return Decoded items.
+     */
+    public <T> Flowable<T> jsonArrayStream(Class<T> itemType) {
+        Codec jsonCodec = clientConfiguration.getCodecs().get(JacksonCodec.APPLICATION_JSON);
+        return Flowable.defer(() -> {
+            JsonItemSplitter splitter = new JsonItemSplitter();
+            return responseStream()
+                    .concatMapIterable(splitter::split, STREAM_PREFETCH)
+                    .concatWith(Flowable.defer(() -> Flowable.fromIterable(splitter.finish())))
+                    .map(item -> jsonCodec.<T>decode(item, 0, item.length, itemType));
+        });
+    }
+
+    /**
+     * Waits for a rate limiter permit before the call is made through the circuit breaker, so that calls rejected
+     * by the rate limiter are not recorded as failures.
+     */
+    private <T> SingleTransformer<T, T> fused() {
+        return upstream -> {
+            Single<T> call = circuitBreaker != null ? upstream.lift(CircuitBreakerOperator.of(circuitBreaker)) : upstream;
+            return rateLimiter != null ? RateLimiterPermits.acquire(rateLimiter).andThen(call) : call;
+        };
+    }
+
+    private <T> FlowableTransformer<T, T> fusedStream() {
+        return upstream -> {
+            Flowable<T> call = circuitBreaker != null ? upstream.lift(CircuitBreakerOperator.of(circuitBreaker)) : upstream;
+            return rateLimiter != null ? RateLimiterPermits.acquire(rateLimiter).andThen(call) : call;
+        };
+    }
+
+    /**
+     * Chooses the endpoint of each exchange and waits for a concurrency limiter slot of that endpoint, or of the
+     * request's destination when not load balanced, before the exchange is sent.
+     */
+    private <T> Single<T> limited(Function<Endpoint, Single<T>> exchange) {
+        return Single.defer(() -> {
+            Endpoint endpoint = loadBalancer != null ? loadBalancer.select() : null;
+            Single<T> call = exchange.apply(endpoint);
+            return concurrencyLimiter != null ? concurrencyLimiter.limit(destination(endpoint), call) : call;
+        });
+    }
+
+    private <T> Flowable<T> limitedStream(Function<Endpoint, Flowable<T>> stream) {
+        return Flowable.defer(() -> {
+            Endpoint endpoint = loadBalancer != null ? loadBalancer.select() : null;
+            Flowable<T> call = stream.apply(endpoint);
+            return concurrencyLimiter != null ? concurrencyLimiter.limit(destination(endpoint), call) : call;
+        });
+    }
+
+    private String destination(Endpoint endpoint) {
+        URI uri = endpoint != null ? endpoint.getUri() : request.getURI();
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    /**
+     * Gets the route of the request, computed from the path only once metrics or spans are recorded.
+     */
+    private String route() {
+        if (route == null) {
+            route = ReactiveHttpClient.routeOf(request.getMethod(), path);
+        }
+        return route;
+    }
+
+    /**
+     * Copies the template into a new exchange, so that the content and its listeners are attached to each exchange
+     * instead of piling up on the template.
+     */
+    private Request copy(Endpoint endpoint) {
+        Request exchange = httpClient.newRequest(endpoint != null ? endpointUri(endpoint) : request.getURI())
+                .method(request.getMethod())
+                .version(request.getVersion())
+                .agent(request.getAgent())
+                .followRedirects(request.isFollowRedirects())
+                .timeout(request.getTimeout(), TimeUnit.MILLISECONDS)
+                .idleTimeout(request.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        exchange.getHeaders().addAll(request.getHeaders());
+        request.getAttributes().forEach(exchange::attribute);
+        return exchange;
+    }
+
+    /**
+     * Prepares a new exchange of the request for sending, encoding the content into a pooled buffer that is
+     * released once the request content has been sent.
+     *
+     * @param endpoint Endpoint to send the exchange to, or null when not load balanced.
+     */
+    private Request prepare(Endpoint endpoint) {
+        Request exchange = httpClient != null ? copy(endpoint) : request;
+        if (metrics != ClientMetrics.NOOP) {
+            ExchangeMetrics.attach(exchange, metrics, inFlight, route());
+        }
+        SpanExporter spanExporter = clientConfiguration.getSpanExporter();
+        ExchangeTracing.attach(exchange, spanExporter, traceParent, baggage,
+                spanExporter != SpanExporter.NOOP ? route() : null);
+        if (endpoint != null) {
+            loadBalancer.attach(exchange, endpoint);
+        }
+        if (contentCompression != null) {
+            contentCompression.prepare(exchange);
+        }
+        if (deadline != null) {
+            long remaining = Math.max(Duration.between(Instant.now(), deadline).toMillis(), 1);
+            if (exchange.getTimeout() <= 0 || remaining < exchange.getTimeout()) {
+                exchange.timeout(remaining, TimeUnit.MILLISECONDS);
+            }
+            String deadlineHeader = clientConfiguration.getClientProperties().getDeadlineHeader();
+            if (deadlineHeader != null) {
+                exchange.getHeaders().put(deadlineHeader, Long.toString(remaining));
+            }
+        }
+        if (contentCodec != null) {
+            PooledContent encoded = contentCompression != null
+                    ? contentCompression.compress(exchange, contentCodec.encode(content))
+                    : contentCodec.encode(content);
+            exchange.content(new ByteBufferContentProvider(contentCodec.getContentType(), encoded.getBuffer()))
+                    .onRequestSuccess(r -> encoded.release())
+                    .onRequestFailure((r, failure) -> encoded.release());
+        } else if (body != null) {
+            FlowableContentProvider.attach(exchange, bodyContentType, body);
+        }
+        return exchange;
+    }
+
+    /**
+     * Replaces the scheme, host and port of the request with those of the endpoint.
+     */
+    private URI endpointUri(Endpoint endpoint) {
+        URI uri = request.getURI();
+        return URI.create(endpoint.getUri().getScheme() + "://" + endpoint.getUri().getRawAuthority()
+                + uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : ""));
+    }
+
+    private Response.Listener decoding(Response.Listener listener) {
+        return contentCompression != null ? contentCompression.decoding(listener) : listener;
+    }
+
+    /**
+     * Only idempotent requests with repeatable content are hedged.
+     */
+    private boolean isHedged() {
+        return hedged && requestHedging != null && body == null && isIdempotent();
+    }
+
+    /**
+     * Only GET requests that do not ask to bypass caches are cached.
+     */
+    private boolean isCached() {
+        if (!cached || responseCache == null || !HttpMethod.GET.is(request.getMethod())) {
+            return false;
+        }
+        String cacheControl = request.getHeaders().get(HttpHeader.CACHE_CONTROL);
+        return cacheControl == null || !(cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
+
+    private boolean isCoalesced() {
+        return coalesced && requestCoalescing != null && body == null
+                && (HttpMethod.GET.is(request.getMethod()) || HttpMethod.HEAD.is(request.getMethod()));
+    }
+
+    private boolean isRetried() {
+        return retried && requestRetry != null && body == null;
+    }
+
+    private boolean isIdempotent() {
+        HttpMethod method = HttpMethod.fromString(request.getMethod());
+        return method == HttpMethod.GET || method == HttpMethod.PUT || method == HttpMethod.DELETE
+                || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS;
+    }
+
+    private boolean isDeadlineExceeded() {
+        return deadline != null && !Instant.now().isBefore(deadline);
+    }
+
+    private DeadlineExceededException deadlineExceeded() {
+        return new DeadlineExceededException("Deadline=" + deadline + " exceeded before sending request=" + request);
+    }
+
+    /**
+     * Writes a streamed item with the cached writer of the JSON codec, or encodes it with the codec when it is not
+     * backed by Jackson.
+     */
+    private static ByteBuffer writeJsonItem(Codec jsonCodec, Object item, char separator) throws IOException {
+        if (jsonCodec instanceof JacksonCodec) {
+            ByteArrayBuilder builder = new ByteArrayBuilder();
+            builder.write(separator);
+            ((JacksonCodec) jsonCodec).writerFor(item).writeValue(builder, item);
+            return ByteBuffer.wrap(builder.toByteArray());
+        }
+        PooledContent encoded = jsonCodec.encode(item);
+        try {
+            ByteBuffer chunk = ByteBuffer.allocate(encoded.size() + 1);
+            chunk.put((byte) separator).put(encoded.getBuffer().duplicate()).flip();
+            return chunk;
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private <T> T readBytes(Response response, ContentBuffer content, Type responseType) {
+        return responseCodec(response).decode(content.array(), 0, content.size(), responseType);
+    }
+
+    /**
+     * Selects the codec by the content type of the response, falling back to the expected codec of the request.
+     */
+    private Codec responseCodec(Response response) {
+        CodecRegistry codecs = clientConfiguration.getCodecs();
+        Codec codec = codecs.find(response.getHeaders().get(HttpHeader.CONTENT_TYPE));
+        if (codec == null) {
+            codec = expectedCodec != null ? expectedCodec : codecs.getDefault();
         }
+        return codec;
+    }
+
+    /**
+     * Starts capturing the content of an unsuccessful response, decoded on demand with the codec of the response.
+     */
+    private ErrorBody errorBody(Response response) {
+        return new ErrorBody(response, clientConfiguration.getClientProperties().getMaxErrorBodySize(),
+                responseCodec(response));
     }
 
-    @SneakyThrows
-    private <T> T readJsonBytes(byte[] bytes, Class<T> responseType) {
-        return clientConfiguration.getObjectMapper().readValue(bytes, responseType);
+    static HttpException httpException(Response response, byte[] content) {
+        return httpException(response, content, false, null);
     }
 
-    private <T> SingleOnSubscribe<CompletedResponse<T>> sendForResponse(Request request,
-                                                                    Class<T> responseType) {
-        return emitter -> request.send(onResponse(emitter, responseType));
+    static HttpException httpException(Response response, byte[] content, boolean truncated, Codec codec) {
+        HttpStatus.Code statusCode = HttpStatus.getCode(response.getStatus());
+        int status = response.getStatus();
+        ResponseHeaders headers = new ResponseHeaders(response.getHeaders());
+        if (statusCode != null && statusCode.isClientError()) {
+            return new Http4xxException(response.getReason(), status, content, headers, truncated, codec);
+        } else if (statusCode != null && statusCode.isServerError()) {
+            return new Http5xxException(response.getReason(), status, content, headers, truncated, codec);
+        } else {
+            return new HttpException(response.getReason(), status, content, headers, truncated, codec);
+        }
+    }
+
+    private <T> Single<CompletedResponse<T>> send(
+            Function<SingleEmitter<CompletedResponse<T>>, Response.Listener> listener, ResponseCache.Lookup lookup) {
+        return limited(endpoint -> Single.create(emitter -> {
+            Request exchange = prepare(endpoint);
+            if (lookup != null) {
+                lookup.prepare(exchange);
+            }
+            // disposing the subscription aborts the exchange, releasing its connection right away
+            emitter.setCancellable(() -> exchange.abort(new CancellationException("Request cancelled.")));
+            exchange.send(decoding(listener.apply(emitter)));
+        }));
     }
 
     private <T> Response.Listener.Adapter onResponse(SingleEmitter<? super CompletedResponse<T>> emitter,
-                                                 Class<T> responseType) {
+                                                 Type responseType,
+                                                 ResponseCache.Lookup lookup) {
 
         return new Response.Listener.Adapter() {
-            private final List<byte[]> buffers = new ArrayList<>();
+            private final ContentBuffer content = new ContentBuffer();
+
+            private ErrorBody errorBody;
+
+            @Override
+            public void onHeaders(Response response) {
+                if (HttpStatus.isSuccess(response.getStatus())) {
+                    content.reserve(response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH.asString()));
+                } else {
+                    errorBody = errorBody(response);
+                }
+            }
 
             @Override
             public void onContent(Response response, ByteBuffer buffer) {
                 log.debug("Content received for response={}", response);
-                byte[] bytes = new byte[buffer.remaining()];
-                buffer.get(bytes);
-                buffers.add(bytes);
+                if (errorBody != null) {
+                    errorBody.append(buffer);
+                } else {
+                    content.append(buffer);
+                }
             }
 
             @Override
             public void onComplete(Result result) {
                 log.debug("Completed result={}", result);
+                if (emitter.isDisposed()) {
+                    return;
+                }
+                if (result.isFailed()) {
+                    emitter.onError(result.getFailure());
+                    return;
+                }
                 Response response = result.getResponse();
-                HttpStatus.Code statusCode = HttpStatus.getCode(response.getStatus());
-                if (statusCode.isSuccess()) {
+                CompletedResponse<T> notModified = lookup != null ? lookup.notModified(response) : null;
+                if (notModified != null) {
+                    emitter.onSuccess(notModified);
+                } else if (HttpStatus.isSuccess(response.getStatus())) {
                     try {
-                        Map<String, String> responseHeaders =
-                                result.getResponse()
-                                        .getHeaders()
-                                        .stream()
-                                        .collect(toMap(HttpField::getName, HttpField::getValue));
                         CompletedResponse<T> completedResponse =
                                 CompletedResponse
                                         .<T>builder()
                                         .status(response.getStatus())
-                                        .body(readJsonBytes(getContent(), responseType))
-                                        .headers(responseHeaders)
+                                        .body(readBytes(response, content, responseType))
+                                        .headers(new ResponseHeaders(response.getHeaders()))
                                         .build();
 
                         log.debug("Request compeleted with response={}", completedResponse);
+                        if (lookup != null) {
+                            lookup.store(response, completedResponse, content.size());
+                        }
                         emitter.onSuccess(completedResponse);
                     } catch (Exception e) {
                         emitter.onError(e);
                     }
 
-                } else if (statusCode.isClientError()) {
-                    emitter.onError(new Http4xxException(response.getReason(),
-                            statusCode.getCode(),
-                            getContent()));
-                } else if (statusCode.isServerError()) {
-                    emitter.onError(new Http5xxException(response.getReason(),
-                            statusCode.getCode(),
-                            getContent()));
                 } else {
-                    emitter.onError(new HttpException(response.getReason(),
-                            statusCode.getCode(),
-                            getContent()));
-                }
-            }
-
-            private byte[] getContent() {
-                if (buffers.isEmpty()) {
-                    return null;
-                }
-                int totalLength = buffers.stream().mapToInt(bytes -> bytes.length).sum();
-                byte[] bytes = new byte[totalLength];
-                int offset = 0;
-                for (byte[] chunk : buffers) {
-                    int length = chunk.length;
-                    System.arraycopy(chunk, 0, bytes, offset, length);
-                    offset += length;
+                    emitter.onError(errorBody != null ? errorBody.toException() : httpException(response, null));
                 }
-                return bytes;
             }
 
             @Override
             public void onFailure(Response response, Throwable failure) {
                 log.debug("Request failed for response={} with failure={}", response, failure);
-                emitter.onError(failure);
             }
         };
     }
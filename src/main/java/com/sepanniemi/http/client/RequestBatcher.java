@@ -0,0 +1,170 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.BatchingProperties;
+import com.sepanniemi.http.client.content.CompletedResponse;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.disposables.Disposable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collects individual calls into batches sent as a single bulk request, and completes each call with its own
+ * result split from the bulk response.
+ * <p>
+ * A batch is sent once it has the maximum number of calls or its linger time has passed since its first call.
+ * A call disposed before its batch is sent is left out of the batch, the bulk request itself is shared by all
+ * the calls of the batch and is not cancelled. A failed bulk request fails every call of the batch.
+ *
+ * @param <I> Type of the items of the calls.
+ * @param <R> Type of the results of the calls.
+ */
+@Slf4j
+public class RequestBatcher<I, R> {
+
+    private final Function<List<I>, Single<CompletedResponse<List<R>>>> bulkCall;
+
+    private final BatchingProperties batchingProperties;
+
+    private List<Call> pending = new ArrayList<>();
+
+    private Disposable linger;
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder calls = new LongAdder();
+
+    RequestBatcher(Function<List<I>, Single<CompletedResponse<List<R>>>> bulkCall,
+                   BatchingProperties batchingProperties) {
+        this.bulkCall = bulkCall;
+        this.batchingProperties = batchingProperties;
+    }
+
+    /**
+     * Gets the number of bulk requests sent.
+     *
+     * @return Number of batches.
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Gets the number of calls sent in the bulk requests.
+     *
+     * @return Number of calls.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Adds a call to the next batch, the call is made on subscription.
+     *
+     * @param item Item of the call.
+     * @return Response of the call, with the status and headers of the bulk response and the result of the item
+     * as the body.
+     */
+    public Single<CompletedResponse<R>> submit(I item) {
+        return Single.create(emitter -> {
+            Call call = new Call(item, emitter);
+            List<Call> full = null;
+            synchronized (this) {
+                pending.add(call);
+                if (pending.size() >= batchingProperties.getMaxBatchSize()) {
+                    full = drain();
+                } else if (pending.size() == 1) {
+                    linger = Single.timer(batchingProperties.getLinger(), TimeUnit.MILLISECONDS)
+                            .subscribe(tick -> flush());
+                }
+            }
+            emitter.setCancellable(() -> cancel(call));
+            if (full != null) {
+                send(full);
+            }
+        });
+    }
+
+    /**
+     * Sends the pending calls without waiting for the batch to fill up or linger.
+     */
+    public void flush() {
+        List<Call> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private List<Call> drain() {
+        List<Call> batch = pending;
+        pending = new ArrayList<>();
+        if (linger != null) {
+            linger.dispose();
+            linger = null;
+        }
+        return batch;
+    }
+
+    private synchronized void cancel(Call call) {
+        if (pending.remove(call) && pending.isEmpty() && linger != null) {
+            linger.dispose();
+            linger = null;
+        }
+    }
+
+    private void send(List<Call> batch) {
+        List<I> items = new ArrayList<>(batch.size());
+        batch.forEach(call -> items.add(call.item));
+        batches.increment();
+        calls.add(batch.size());
+        log.debug("Sending a batch of size={}", batch.size());
+        bulkCall.apply(items).subscribe(response -> complete(batch, response), failure -> fail(batch, failure));
+    }
+
+    private void complete(List<Call> batch, CompletedResponse<List<R>> response) {
+        List<R> results = response.getBody();
+        if (results == null || results.size() != batch.size()) {
+            fail(batch, new IllegalStateException("Bulk response has " + (results == null ? 0 : results.size())
+                    + " results for " + batch.size() + " items."));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            SingleEmitter<CompletedResponse<R>> emitter = batch.get(i).emitter;
+            if (!emitter.isDisposed()) {
+                emitter.onSuccess(CompletedResponse.<R>builder()
+                        .status(response.getStatus())
+                        .headers(response.getHeaders())
+                        .body(results.get(i))
+                        .build());
+            }
+        }
+    }
+
+    private void fail(List<Call> batch, Throwable failure) {
+        for (Call call : batch) {
+            if (!call.emitter.isDisposed()) {
+                call.emitter.onError(failure);
+            }
+        }
+    }
+
+    private class Call {
+
+        private final I item;
+
+        private final SingleEmitter<CompletedResponse<R>> emitter;
+
+        private Call(I item, SingleEmitter<CompletedResponse<R>> emitter) {
+            this.item = item;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.CoalescingProperties;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import org.eclipse.jetty.client.api.Request;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares a single exchange between identical requests in flight, all of them receive the same response.
+ * <p>
+ * The exchange is aborted only when every request sharing it has been disposed.
+ */
+public class RequestCoalescing {
+
+    private final CoalescingProperties coalescingProperties;
+
+    private final ConcurrentMap<String, Observable<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    public RequestCoalescing(CoalescingProperties coalescingProperties) {
+        this.coalescingProperties = coalescingProperties;
+    }
+
+    /**
+     * Gets the number of requests that joined an exchange already in flight.
+     *
+     * @return Number of coalesced requests.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Coalesces the given call with the identical calls in flight.
+     *
+     * @param request      Request template.
+     * @param responseType Type the response body is decoded into.
+     * @param call         Call sending the request.
+     * @param <T>          Type of the response.
+     * @return Shared response.
+     */
+    @SuppressWarnings("unchecked")
+    <T> Single<T> coalesce(Request request, Type responseType, Single<T> call) {
+        return Single.defer(() -> {
+            String key = key(request, responseType);
+            AtomicBoolean created = new AtomicBoolean();
+            Observable<T> shared = (Observable<T>) inFlight.computeIfAbsent(key, k -> {
+                created.set(true);
+                return share(k, call);
+            });
+            if (!created.get()) {
+                coalesced.increment();
+            }
+            return shared.singleOrError();
+        });
+    }
+
+    private <T> Observable<T> share(String key, Single<T> call) {
+        AtomicReference<Observable<T>> self = new AtomicReference<>();
+        // removed before the response is emitted, later requests start a new exchange
+        Observable<T> shared = call
+                .doOnEvent((response, error) -> inFlight.remove(key, self.get()))
+                .doOnDispose(() -> inFlight.remove(key, self.get()))
+                .toObservable()
+                .publish()
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+
+    private String key(Request request, Type responseType) {
+        StringBuilder key = new StringBuilder()
+                .append(request.getMethod()).append(' ')
+                .append(request.getURI()).append(' ')
+                .append(responseType.getTypeName());
+        for (String header : coalescingProperties.getKeyHeaders()) {
+            key.append(' ').append(header).append('=').append(request.getHeaders().get(header));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.HedgingProperties;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.disposables.CompositeDisposable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends duplicates of a request that has not completed within the hedging delay and uses the first successful
+ * response, aborting the other attempts.
+ */
+@Slf4j
+public class RequestHedging {
+
+    private final HedgingProperties hedgingProperties;
+
+    private final LatencyWindow latencies;
+
+    private final LongAdder hedgesFired = new LongAdder();
+
+    private final LongAdder hedgesWon = new LongAdder();
+
+    public RequestHedging(HedgingProperties hedgingProperties) {
+        this.hedgingProperties = hedgingProperties;
+        this.latencies = new LatencyWindow(hedgingProperties.getLatencyWindowSize(), hedgingProperties.getPercentile());
+    }
+
+    /**
+     * Gets the number of duplicate requests sent.
+     *
+     * @return Number of hedges fired.
+     */
+    public long getHedgesFired() {
+        return hedgesFired.sum();
+    }
+
+    /**
+     * Gets the number of requests completed by a duplicate before the original request.
+     *
+     * @return Number of hedges won.
+     */
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * Gets the current delay before a duplicate request is sent.
+     *
+     * @return Hedging delay in milliseconds.
+     */
+    public long getDelay() {
+        long percentile = latencies.getPercentile();
+        if (hedgingProperties.getPercentile() > 0
+                && percentile >= 0
+                && latencies.size() >= hedgingProperties.getMinLatencySamples()) {
+            return percentile;
+        }
+        return hedgingProperties.getDelay();
+    }
+
+    /**
+     * Hedges the given request, each subscription to it sends a new attempt.
+     *
+     * @param attempt Attempt of the request.
+     * @param <T>     Type of the response.
+     * @return Response of the first successful attempt.
+     */
+    <T> Single<T> hedge(Single<T> attempt) {
+        return Single.create(emitter -> new HedgedCall<>(emitter, attempt).start());
+    }
+
+    private class HedgedCall<T> {
+
+        private final SingleEmitter<T> emitter;
+
+        private final Single<T> attempt;
+
+        private final CompositeDisposable attempts = new CompositeDisposable();
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicInteger hedgesLeft = new AtomicInteger(hedgingProperties.getMaxHedges());
+
+        private long start;
+
+        private HedgedCall(SingleEmitter<T> emitter, Single<T> attempt) {
+            this.emitter = emitter;
+            this.attempt = attempt;
+        }
+
+        private void start() {
+            // completing or disposing the call disposes every attempt, aborting the losers
+            emitter.setDisposable(attempts);
+            start = System.nanoTime();
+            send(false);
+            scheduleHedge();
+        }
+
+        private void scheduleHedge() {
+            if (hedgesLeft.get() > 0) {
+                attempts.add(Single.timer(getDelay(), TimeUnit.MILLISECONDS).subscribe(tick -> {
+                    if (!done.get() && hedgesLeft.getAndDecrement() > 0) {
+                        log.debug("Sending hedged request, outstanding attempts={}", outstanding.get());
+                        hedgesFired.increment();
+                        send(true);
+                        scheduleHedge();
+                    }
+                }));
+            }
+        }
+
+        private void send(boolean hedge) {
+            outstanding.incrementAndGet();
+            attempts.add(attempt.subscribe(
+                    response -> {
+                        if (done.compareAndSet(false, true)) {
+                            // the latency of the original attempt is recorded even when a hedge wins, as the time it
+                            // had taken by then, so that slow attempts keep the delay from drifting down
+                            latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                            if (hedge) {
+                                hedgesWon.increment();
+                            }
+                            emitter.onSuccess(response);
+                        }
+                    },
+                    error -> {
+                        // fail only once no attempt can succeed anymore
+                        if (outstanding.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+                            emitter.onError(error);
+                        }
+                    }));
+        }
+    }
+}
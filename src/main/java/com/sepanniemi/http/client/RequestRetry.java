@@ -0,0 +1,172 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.RetryProperties;
+import com.sepanniemi.http.client.error.HttpException;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.http.DateParser;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries requests failing with a retryable status or an I/O failure, backing off exponentially with jitter.
+ * <p>
+ * Retries spend tokens from a budget that is refilled by the requests, so the retries stay a bounded fraction
+ * of the load even when every request fails.
+ */
+@Slf4j
+public class RequestRetry {
+
+    private final RetryProperties retryProperties;
+
+    private final Object budgetLock = new Object();
+
+    private double budgetTokens;
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder retriesRejected = new LongAdder();
+
+    public RequestRetry(RetryProperties retryProperties) {
+        this.retryProperties = retryProperties;
+        this.budgetTokens = retryProperties.getBudgetMaxTokens();
+    }
+
+    /**
+     * Gets the number of retries sent.
+     *
+     * @return Number of retries.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Gets the number of retries not sent because the retry budget was spent.
+     *
+     * @return Number of rejected retries.
+     */
+    public long getRetriesRejected() {
+        return retriesRejected.sum();
+    }
+
+    /**
+     * Retries the given request, each subscription to it sends a new attempt.
+     *
+     * @param attempt    Attempt of the request.
+     * @param idempotent Whether the request may be repeated after it has been sent.
+     * @param deadline   Deadline of the request, no retry is scheduled past it. May be null.
+     * @param <T>        Type of the response.
+     * @return Response of the first successful attempt.
+     */
+    <T> Single<T> retry(Single<T> attempt, boolean idempotent, Instant deadline) {
+        return Single.defer(() -> {
+            deposit();
+            AtomicInteger attempts = new AtomicInteger(1);
+            return attempt.retryWhen(errors -> errors.flatMap(error -> {
+                long delay = retryDelay(error, attempts.getAndIncrement(), idempotent, deadline);
+                if (delay < 0) {
+                    return Flowable.error(error);
+                }
+                log.debug("Retrying request in {}ms after failure={}", delay, error.toString());
+                retries.increment();
+                return Flowable.timer(delay, TimeUnit.MILLISECONDS);
+            }));
+        });
+    }
+
+    /**
+     * Gets the delay before the next attempt.
+     *
+     * @return Delay in milliseconds, negative when the failure is not retried.
+     */
+    private long retryDelay(Throwable error, int attempt, boolean idempotent, Instant deadline) {
+        if (attempt >= retryProperties.getMaxAttempts() || !isRetryable(error, idempotent)) {
+            return -1;
+        }
+        long delay = backoff(attempt);
+        if (error instanceof HttpException) {
+            long retryAfter = retryAfter((HttpException) error);
+            if (retryAfter > retryProperties.getMaxRetryAfter()) {
+                return -1;
+            }
+            delay = Math.max(delay, retryAfter);
+        }
+        if (deadline != null && Instant.now().plusMillis(delay).isAfter(deadline)) {
+            return -1;
+        }
+        if (!withdraw()) {
+            retriesRejected.increment();
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * Statuses are retried only for idempotent requests, as are I/O failures unless the connection could not be
+     * established, in which case nothing was sent.
+     */
+    private boolean isRetryable(Throwable error, boolean idempotent) {
+        if (error instanceof ConnectException) {
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        if (error instanceof HttpException) {
+            return retryProperties.getRetryableStatuses().contains(((HttpException) error).getStatus());
+        }
+        return error instanceof IOException;
+    }
+
+    private long backoff(int attempt) {
+        double backoff = Math.min(
+                retryProperties.getInitialBackoff() * Math.pow(retryProperties.getBackoffMultiplier(), attempt - 1),
+                retryProperties.getMaxBackoff());
+        double jitter = retryProperties.getJitter() * ThreadLocalRandom.current().nextDouble();
+        return (long) (backoff * (1 - jitter));
+    }
+
+    /**
+     * Reads the Retry-After header, given either as seconds or as an HTTP date.
+     *
+     * @return Requested delay in milliseconds, zero when not given.
+     */
+    private static long retryAfter(HttpException error) {
+        String retryAfter = error.getHeaders().get(HttpHeader.RETRY_AFTER.asString());
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            long date = DateParser.parseDate(retryAfter);
+            return date < 0 ? 0 : Math.max(Duration.between(Instant.now(), Instant.ofEpochMilli(date)).toMillis(), 0);
+        }
+    }
+
+    private void deposit() {
+        synchronized (budgetLock) {
+            budgetTokens = Math.min(budgetTokens + retryProperties.getBudgetRatio(), retryProperties.getBudgetMaxTokens());
+        }
+    }
+
+    private boolean withdraw() {
+        synchronized (budgetLock) {
+            if (budgetTokens < 1) {
+                return false;
+            }
+            budgetTokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.sepanniemi.http.client;
+
+import com.sepanniemi.http.client.configuration.CacheProperties;
+import com.sepanniemi.http.client.configuration.CoalescingProperties;
+import com.sepanniemi.http.client.content.CompletedResponse;
+import com.sepanniemi.http.client.content.ResponseHeaders;
+import com.sepanniemi.http.client.error.Http4xxException;
+import io.reactivex.Single;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.DateParser;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of decoded GET responses following their {@code Cache-Control} and {@code Expires} headers.
+ * <p>
+ * Stale responses with an {@code ETag} or {@code Last-Modified} are revalidated with a conditional request, and
+ * served while being revalidated or when revalidation fails as allowed by the {@code stale-while-revalidate} and
+ * {@code stale-if-error} directives. Cached response bodies are shared by all the callers and must not be modified.
+ * <p>
+ * Responses are cached by the URI, the response type and the {@code Accept} and {@code Authorization} headers, along
+ * with the key headers of request coalescing. As the cache is shared by all the callers of the client, {@code private}
+ * responses are not stored, and responses to authorized requests only when marked {@code public},
+ * {@code s-maxage} or {@code must-revalidate}.
+ */
+@Slf4j
+public class ResponseCache {
+
+    /**
+     * Approximate weight of an entry on top of its body.
+     */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final CacheProperties cacheProperties;
+
+    private final Set<String> keyHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder revalidations = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(CacheProperties cacheProperties) {
+        this(cacheProperties, null);
+    }
+
+    /**
+     * Creates a cache keyed also by the key headers of request coalescing.
+     *
+     * @param cacheProperties      Cache properties.
+     * @param coalescingProperties Request coalescing properties, or null when requests are not coalesced.
+     */
+    public ResponseCache(CacheProperties cacheProperties, CoalescingProperties coalescingProperties) {
+        this.cacheProperties = cacheProperties;
+        this.keyHeaders.addAll(Arrays.asList(HttpHeader.ACCEPT.asString(), HttpHeader.AUTHORIZATION.asString()));
+        if (coalescingProperties != null) {
+            this.keyHeaders.addAll(coalescingProperties.getKeyHeaders());
+        }
+    }
+
+    /**
+     * Gets the number of requests served from the cache without a request to the server.
+     *
+     * @return Number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of cached responses revalidated as not modified.
+     *
+     * @return Number of revalidations.
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Serves the request from the cache, calling the server when the cached response is missing or stale.
+     *
+     * @param request      Request template.
+     * @param responseType Type the response body is decoded into.
+     * @param call         Sends the request for the given lookup.
+     * @param <T>          Type of the response body.
+     * @return Cached or received response.
+     */
+    <T> Single<CompletedResponse<T>> lookup(Request request, Type responseType,
+                                            Function<Lookup, Single<CompletedResponse<T>>> call) {
+        String key = key(request, responseType);
+        Lookup lookup = new Lookup(key, request, get(key, request));
+        Entry cached = lookup.entry;
+        if (cached == null) {
+            misses.increment();
+            return call.apply(lookup);
+        }
+        long now = System.currentTimeMillis();
+        if (now < cached.freshUntil) {
+            hits.increment();
+            return Single.just(cached.response());
+        }
+        if (now < cached.freshUntil + cached.staleWhileRevalidate) {
+            hits.increment();
+            if (cached.revalidating.compareAndSet(false, true)) {
+                call.apply(lookup).subscribe(
+                        response -> log.debug("Revalidated stale response for request={}", request),
+                        error -> cached.revalidating.set(false));
+            }
+            return Single.just(cached.response());
+        }
+        misses.increment();
+        return call.apply(lookup).onErrorResumeNext(error -> {
+            if (!(error instanceof Http4xxException) && System.currentTimeMillis() < cached.freshUntil + cached.staleIfError) {
+                log.debug("Serving stale response for request={} after failure={}", request, error.toString());
+                return Single.just(cached.response());
+            }
+            return Single.error(error);
+        });
+    }
+
+    private String key(Request request, Type responseType) {
+        StringBuilder key = new StringBuilder()
+                .append(request.getURI()).append(' ')
+                .append(responseType.getTypeName());
+        for (String header : keyHeaders) {
+            key.append(' ').append(header).append('=').append(request.getHeaders().get(header));
+        }
+        return key.toString();
+    }
+
+    private synchronized Entry get(String key, Request request) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.matches(request) ? entry : null;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > cacheProperties.getMaxWeight() && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+    }
+
+    /**
+     * Cache state of a single request.
+     */
+    class Lookup {
+
+        private final String key;
+
+        private final Request request;
+
+        private final Entry entry;
+
+        private Lookup(String key, Request request, Entry entry) {
+            this.key = key;
+            this.request = request;
+            this.entry = entry;
+        }
+
+        /**
+         * Makes the exchange conditional on the validators of the cached response.
+         */
+        void prepare(Request exchange) {
+            if (entry != null) {
+                if (entry.etag != null) {
+                    exchange.getHeaders().put(HttpHeader.IF_NONE_MATCH, entry.etag);
+                }
+                if (entry.lastModified != null) {
+                    exchange.getHeaders().put(HttpHeader.IF_MODIFIED_SINCE, entry.lastModified);
+                }
+            }
+        }
+
+        /**
+         * Refreshes the cached response after the server found it not modified.
+         *
+         * @return Cached response with the refreshed headers, or null when nothing was cached.
+         */
+        @SuppressWarnings("unchecked")
+        <T> CompletedResponse<T> notModified(Response response) {
+            if (entry == null || response.getStatus() != HttpStatus.NOT_MODIFIED_304) {
+                return null;
+            }
+            revalidations.increment();
+            ResponseHeaders headers = entry.response.getHeaders().with(response.getHeaders());
+            CompletedResponse<Object> refreshed = CompletedResponse.builder()
+                    .status(entry.response.getStatus())
+                    .body(entry.response.getBody())
+                    .headers(headers)
+                    .build();
+            store(headers, refreshed, entry.weight - ENTRY_OVERHEAD);
+            return (CompletedResponse<T>) refreshed;
+        }
+
+        /**
+         * Caches a received response when it is allowed to be cached.
+         */
+        void store(Response response, CompletedResponse<?> completedResponse, int contentLength) {
+            if (response.getStatus() == HttpStatus.OK_200) {
+                store(completedResponse.getHeaders(), completedResponse, contentLength);
+            }
+        }
+
+        /**
+         * Stores the response by the given case insensitive headers.
+         */
+        private void store(Map<String, String> headers, CompletedResponse<?> completedResponse, long contentLength) {
+            Map<String, String> cacheControl = cacheControl(headers.get(HttpHeader.CACHE_CONTROL.asString()));
+            String etag = headers.get(HttpHeader.ETAG.asString());
+            String lastModified = headers.get(HttpHeader.LAST_MODIFIED.asString());
+            long freshness = freshness(headers, cacheControl);
+            long entryWeight = contentLength + ENTRY_OVERHEAD;
+            if (cacheControl.containsKey("no-store")
+                    || cacheControl.containsKey("private")
+                    || (request.getHeaders().contains(HttpHeader.AUTHORIZATION) && !isShareable(cacheControl))
+                    || "*".equals(headers.get(HttpHeader.VARY.asString()))
+                    || (freshness <= 0 && etag == null && lastModified == null)
+                    || entryWeight > cacheProperties.getMaxEntryWeight()) {
+                remove(key);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            Entry stored = new Entry(completedResponse, entryWeight, now + Math.max(freshness, 0),
+                    seconds(cacheControl, "stale-while-revalidate"), seconds(cacheControl, "stale-if-error"),
+                    etag, lastModified, varyingHeaders(headers, request));
+            put(key, stored);
+        }
+    }
+
+    private static Map<String, String> cacheControl(String value) {
+        if (value == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> directives = new HashMap<>();
+        for (String directive : value.split(",")) {
+            String[] parts = directive.trim().split("=", 2);
+            if (!parts[0].isEmpty()) {
+                directives.put(parts[0].toLowerCase(Locale.ROOT), parts.length > 1 ? parts[1].replace("\"", "").trim() : "");
+            }
+        }
+        return directives;
+    }
+
+    /**
+     * Checks whether a response to an authorized request may be stored in a shared cache.
+     */
+    private static boolean isShareable(Map<String, String> cacheControl) {
+        return cacheControl.containsKey("public")
+                || cacheControl.containsKey("s-maxage")
+                || cacheControl.containsKey("must-revalidate");
+    }
+
+    /**
+     * Gets the freshness lifetime from the s-maxage or max-age directive or the Expires header, less the age of the response.
+     */
+    private static long freshness(Map<String, String> headers, Map<String, String> cacheControl) {
+        if (cacheControl.containsKey("no-cache")) {
+            return 0;
+        }
+        if (cacheControl.containsKey("s-maxage")) {
+            return seconds(cacheControl, "s-maxage") - seconds(headers, HttpHeader.AGE.asString());
+        }
+        if (cacheControl.containsKey("max-age")) {
+            return seconds(cacheControl, "max-age") - seconds(headers, HttpHeader.AGE.asString());
+        }
+        String expires = headers.get(HttpHeader.EXPIRES.asString());
+        if (expires != null) {
+            long expiresAt = DateParser.parseDate(expires);
+            String date = headers.get(HttpHeader.DATE.asString());
+            long dateAt = date != null ? DateParser.parseDate(date) : -1;
+            return expiresAt < 0 ? 0 : expiresAt - (dateAt > 0 ? dateAt : System.currentTimeMillis());
+        }
+        return 0;
+    }
+
+    /**
+     * Reads a value in seconds as milliseconds, zero when missing or malformed.
+     */
+    private static long seconds(Map<String, String> values, String name) {
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(Long.parseLong(values.getOrDefault(name, "0").trim()), 0));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Map<String, String> varyingHeaders(Map<String, String> headers, Request request) {
+        String vary = headers.get(HttpHeader.VARY.asString());
+        if (vary == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> varying = new HashMap<>();
+        for (String name : vary.split(",")) {
+            varying.put(name.trim(), request.getHeaders().get(name.trim()));
+        }
+        return varying;
+    }
+
+    private static class Entry {
+
+        private final CompletedResponse<?> response;
+
+        private final long weight;
+
+        private final long freshUntil;
+
+        private final long staleWhileRevalidate;
+
+        private final long staleIfError;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final Map<String, String> varyingHeaders;
+
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        private Entry(CompletedResponse<?> response, long weight, long freshUntil, long staleWhileRevalidate,
+                      long staleIfError, String etag, String lastModified, Map<String, String> varyingHeaders) {
+            this.response = response;
+            this.weight = weight;
+            this.freshUntil = freshUntil;
+            this.staleWhileRevalidate = staleWhileRevalidate;
+            this.staleIfError = staleIfError;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.varyingHeaders = varyingHeaders;
+        }
+
+        private boolean matches(Request request) {
+            for (Map.Entry<String, String> varying : varyingHeaders.entrySet()) {
+                if (!Objects.equals(varying.getValue(), request.getHeaders().get(varying.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> CompletedResponse<T> response() {
+            return (CompletedResponse<T>) response;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.sepanniemi.http.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.Callback;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Publishes the response content chunks of a request as they arrive, the request is sent on subscription.
+ * <p>
+ * Jetty is asked for more content only when the subscriber has outstanding demand, so a slow subscriber
+ * pauses reading from the connection instead of buffering the response in memory.
+ */
+@Slf4j
+class ResponseContentPublisher implements Publisher<ByteBuffer> {
+
+    private static final Subscription EMPTY = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final Supplier<Request> exchange;
+
+    private final UnaryOperator<Response.Listener> decoding;
+
+    private final Function<Response, ErrorBody> errorBody;
+
+    ResponseContentPublisher(Supplier<Request> exchange, UnaryOperator<Response.Listener> decoding,
+                             Function<Response, ErrorBody> errorBody) {
+        this.exchange = exchange;
+        this.decoding = decoding;
+        this.errorBody = errorBody;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+        Request request;
+        try {
+            request = exchange.get();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(EMPTY);
+            subscriber.onError(e);
+            return;
+        }
+        ContentSubscription subscription = new ContentSubscription(request, subscriber);
+        subscriber.onSubscribe(subscription);
+        if (!subscription.cancelled) {
+            request.send(decoding.apply(subscription));
+        }
+    }
+
+    private class ContentSubscription extends Response.Listener.Adapter implements Subscription {
+
+        private final Request request;
+
+        private final Subscriber<? super ByteBuffer> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile ByteBuffer pendingChunk;
+
+        private volatile Callback pendingCallback;
+
+        private volatile boolean done;
+
+        private volatile boolean cancelled;
+
+        private Throwable error;
+
+        private ErrorBody errorContent;
+
+        private ContentSubscription(Request request, Subscriber<? super ByteBuffer> subscriber) {
+            this.request = request;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested amount must be positive, was n=" + n));
+                return;
+            }
+            requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                request.abort(new CancellationException("Response stream cancelled."));
+            }
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            if (!HttpStatus.isSuccess(response.getStatus())) {
+                errorContent = errorBody.apply(response);
+            }
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer buffer, Callback callback) {
+            log.debug("Content received for response={}", response);
+            if (errorContent != null) {
+                errorContent.append(buffer);
+                callback.succeeded();
+                return;
+            }
+            pendingChunk = buffer;
+            pendingCallback = callback;
+            drain();
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            log.debug("Completed result={}", result);
+            if (result.isFailed()) {
+                error = result.getFailure();
+            } else if (errorContent != null) {
+                error = errorContent.toException();
+            }
+            done = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (; ; ) {
+                if (cancelled) {
+                    pendingChunk = null;
+                    pendingCallback = null;
+                    return;
+                }
+                Callback callback = pendingCallback;
+                if (callback != null && requested.get() > 0) {
+                    ByteBuffer chunk = pendingChunk;
+                    pendingChunk = null;
+                    pendingCallback = null;
+                    requested.decrementAndGet();
+                    subscriber.onNext(copyOf(chunk));
+                    // may synchronously deliver the next chunk, which is picked up by the missed loop
+                    callback.succeeded();
+                }
+                if (done && pendingCallback == null) {
+                    cancelled = true;
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        private ByteBuffer copyOf(ByteBuffer chunk) {
+            ByteBuffer copy = ByteBuffer.allocate(chunk.remaining());
+            copy.put(chunk).flip();
+            return copy;
+        }
+    }
+}
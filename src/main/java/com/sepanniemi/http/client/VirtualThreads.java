@@ -0,0 +1,27 @@
+package com.sepanniemi.http.client;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Executor of virtual threads, which are available only on Java 21 and later.
+ * <p>
+ * This is the Java 8 version of the class, it is replaced by the version in {@code src/main/java21} when the
+ * multi-release jar is run on Java 21.
+ */
+class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each task.
+     *
+     * @param name Prefix of the thread names.
+     * @return Executor.
+     * @throws UnsupportedOperationException When virtual threads are not available.
+     */
+    static ExecutorService newExecutor(String name) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21, running on Java "
+                + System.getProperty("java.version") + ".");
+    }
+}
@@ -0,0 +1,44 @@
+package com.sepanniemi.http.client.codec;
+
+import java.lang.reflect.Type;
+
+/**
+ * Encodes request content and decodes response content of a media type.
+ */
+public interface Codec {
+
+    /**
+     * Gets the content type set on requests encoded with this codec.
+     *
+     * @return Content type, e.g. {@code application/json;charset=UTF-8}.
+     */
+    String getContentType();
+
+    /**
+     * Checks whether content of the given media type can be decoded with this codec.
+     *
+     * @param mediaType Media type without parameters, in lower case.
+     * @return True if the media type is supported.
+     */
+    boolean supports(String mediaType);
+
+    /**
+     * Encodes the content into a pooled buffer.
+     *
+     * @param content Content to encode.
+     * @return Encoded content, to be released once it has been sent.
+     */
+    PooledContent encode(Object content);
+
+    /**
+     * Decodes content into the given type.
+     *
+     * @param bytes  Content bytes.
+     * @param offset Offset of the content.
+     * @param length Length of the content.
+     * @param type   Class, generic type or Jackson type of the result.
+     * @param <T>    Type of the result.
+     * @return Decoded content.
+     */
+    <T> T decode(byte[] bytes, int offset, int length, Type type);
+}
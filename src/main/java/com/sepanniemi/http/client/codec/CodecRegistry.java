@@ -0,0 +1,91 @@
+package com.sepanniemi.http.client.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.eclipse.jetty.io.ByteBufferPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Codecs available to a client, looked up by the content type of a response or the media type of a request.
+ */
+public class CodecRegistry {
+
+    private final Codec defaultCodec;
+
+    private final List<Codec> codecs;
+
+    /**
+     * @param defaultCodec Codec used when the content type is missing or not supported by any codec.
+     * @param codecs       Additional codecs, looked up in the given order.
+     */
+    public CodecRegistry(Codec defaultCodec, Codec... codecs) {
+        this.defaultCodec = defaultCodec;
+        this.codecs = new ArrayList<>();
+        this.codecs.add(defaultCodec);
+        this.codecs.addAll(Arrays.asList(codecs));
+    }
+
+    /**
+     * Creates a registry with JSON as the default codec and Smile, CBOR and XML codecs, all mapping objects the same
+     * way as the given object mapper.
+     *
+     * @param objectMapper Object mapper for JSON content, the mappers of the other formats are derived from it.
+     * @param bufferPool   Pool of the buffers content is encoded into.
+     * @return Codec registry.
+     */
+    public static CodecRegistry defaults(ObjectMapper objectMapper, ByteBufferPool bufferPool) {
+        return new CodecRegistry(JacksonCodec.json(objectMapper, bufferPool),
+                JacksonCodec.smile(JacksonCodec.mapperFor(objectMapper, new SmileFactory()), bufferPool),
+                JacksonCodec.cbor(JacksonCodec.mapperFor(objectMapper, new CBORFactory()), bufferPool),
+                JacksonCodec.xml(JacksonCodec.xmlMapperFor(objectMapper), bufferPool));
+    }
+
+    public Codec getDefault() {
+        return defaultCodec;
+    }
+
+    /**
+     * Finds the codec for the given content type.
+     *
+     * @param contentType Content type, possibly with parameters such as the charset.
+     * @return Codec for the content type, or null if there is none.
+     */
+    public Codec find(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = mediaType(contentType);
+        for (Codec codec : codecs) {
+            if (codec.supports(mediaType)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the codec for the given content type.
+     *
+     * @param contentType Content type, possibly with parameters such as the charset.
+     * @return Codec for the content type.
+     * @throws IllegalArgumentException if no codec supports the content type.
+     */
+    public Codec get(String contentType) {
+        Codec codec = find(contentType);
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec registered for content type=" + contentType);
+        }
+        return codec;
+    }
+
+    private static String mediaType(String contentType) {
+        int parameters = contentType.indexOf(';');
+        String mediaType = parameters >= 0 ? contentType.substring(0, parameters) : contentType;
+        return mediaType.trim().toLowerCase(Locale.ENGLISH);
+    }
+}
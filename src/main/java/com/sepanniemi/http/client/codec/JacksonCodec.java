@@ -0,0 +1,226 @@
+package com.sepanniemi.http.client.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import lombok.SneakyThrows;
+import org.eclipse.jetty.io.ByteBufferPool;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Codec backed by a Jackson object mapper, usable with any Jackson data format.
+ * <p>
+ * Object readers and writers are resolved once per type and cached, and content is encoded directly into
+ * pooled buffers that are sent as is and returned to the pool once the request content has been consumed.
+ */
+public class JacksonCodec implements Codec {
+
+    public static final String APPLICATION_JSON = "application/json";
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    public static final String APPLICATION_XML = "application/xml";
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 8 * 1024;
+
+    private final ObjectMapper objectMapper;
+
+    private final ByteBufferPool bufferPool;
+
+    private final String contentType;
+
+    private final Set<String> mediaTypes;
+
+    private final String mediaTypeSuffix;
+
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * @param objectMapper    Object mapper of the data format.
+     * @param bufferPool      Pool of the buffers content is encoded into.
+     * @param contentType     Content type of the encoded content.
+     * @param mediaTypeSuffix Structured syntax suffix of the format, such as {@code +json}, or null.
+     * @param mediaTypes      Media types decoded with this codec.
+     */
+    public JacksonCodec(ObjectMapper objectMapper,
+                        ByteBufferPool bufferPool,
+                        String contentType,
+                        String mediaTypeSuffix,
+                        String... mediaTypes) {
+        this.objectMapper = objectMapper;
+        this.bufferPool = bufferPool;
+        this.contentType = contentType;
+        this.mediaTypeSuffix = mediaTypeSuffix;
+        this.mediaTypes = new HashSet<>(Arrays.asList(mediaTypes));
+    }
+
+    public static JacksonCodec json(ObjectMapper objectMapper, ByteBufferPool bufferPool) {
+        return new JacksonCodec(objectMapper, bufferPool, APPLICATION_JSON + ";charset=UTF-8", "+json", APPLICATION_JSON, "text/json");
+    }
+
+    public static JacksonCodec smile(ByteBufferPool bufferPool) {
+        return smile(new ObjectMapper(new SmileFactory()), bufferPool);
+    }
+
+    /**
+     * @param smileMapper Object mapper backed by a {@link SmileFactory}.
+     * @param bufferPool  Pool of the buffers content is encoded into.
+     * @return Smile codec.
+     */
+    public static JacksonCodec smile(ObjectMapper smileMapper, ByteBufferPool bufferPool) {
+        return new JacksonCodec(smileMapper, bufferPool, APPLICATION_SMILE, "+smile", APPLICATION_SMILE);
+    }
+
+    public static JacksonCodec cbor(ByteBufferPool bufferPool) {
+        return cbor(new ObjectMapper(new CBORFactory()), bufferPool);
+    }
+
+    /**
+     * @param cborMapper Object mapper backed by a {@link CBORFactory}.
+     * @param bufferPool Pool of the buffers content is encoded into.
+     * @return CBOR codec.
+     */
+    public static JacksonCodec cbor(ObjectMapper cborMapper, ByteBufferPool bufferPool) {
+        return new JacksonCodec(cborMapper, bufferPool, APPLICATION_CBOR, "+cbor", APPLICATION_CBOR);
+    }
+
+    public static JacksonCodec xml(ByteBufferPool bufferPool) {
+        return xml(new XmlMapper(), bufferPool);
+    }
+
+    public static JacksonCodec xml(XmlMapper xmlMapper, ByteBufferPool bufferPool) {
+        return new JacksonCodec(xmlMapper, bufferPool, APPLICATION_XML + ";charset=UTF-8", "+xml", APPLICATION_XML, "text/xml");
+    }
+
+    /**
+     * Creates an object mapper of another JSON-like data format, such as Smile or CBOR, that maps objects the same
+     * way as the given mapper. The serializers, deserializers and modules registered to the mapper are shared and
+     * its features, naming strategy, mix-ins and other settings are copied.
+     *
+     * @param objectMapper Configured object mapper, typically the one for JSON.
+     * @param factory      Factory of the data format.
+     * @return Object mapper of the data format.
+     */
+    public static ObjectMapper mapperFor(ObjectMapper objectMapper, JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory,
+                (DefaultSerializerProvider) objectMapper.getSerializerProvider(),
+                (DefaultDeserializationContext) objectMapper.getDeserializationContext());
+        mapper.setSerializerFactory(objectMapper.getSerializerFactory());
+        mapper.setConfig(objectMapper.getSerializationConfig());
+        mapper.setConfig(objectMapper.getDeserializationConfig());
+        mapper.setInjectableValues(objectMapper.getInjectableValues());
+        return mapper;
+    }
+
+    /**
+     * Creates an XML mapper with the features, naming strategy, property inclusion and date format of the given
+     * mapper. XML needs its own serializers, so modules registered to the mapper are not carried over; an XML
+     * mapper with the modules registered can be given to {@link #xml(XmlMapper, ByteBufferPool)} instead.
+     *
+     * @param objectMapper Configured object mapper, typically the one for JSON.
+     * @return XML mapper.
+     */
+    public static XmlMapper xmlMapperFor(ObjectMapper objectMapper) {
+        XmlMapper mapper = new XmlMapper();
+        for (MapperFeature feature : MapperFeature.values()) {
+            mapper.configure(feature, objectMapper.isEnabled(feature));
+        }
+        for (SerializationFeature feature : SerializationFeature.values()) {
+            mapper.configure(feature, objectMapper.isEnabled(feature));
+        }
+        for (DeserializationFeature feature : DeserializationFeature.values()) {
+            mapper.configure(feature, objectMapper.isEnabled(feature));
+        }
+        SerializationConfig config = objectMapper.getSerializationConfig();
+        mapper.setPropertyNamingStrategy(config.getPropertyNamingStrategy());
+        mapper.setPropertyInclusion(config.getDefaultPropertyInclusion());
+        mapper.setDateFormat(config.getDateFormat());
+        mapper.setTimeZone(config.getTimeZone());
+        return mapper;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean supports(String mediaType) {
+        return mediaTypes.contains(mediaType) || (mediaTypeSuffix != null && mediaType.endsWith(mediaTypeSuffix));
+    }
+
+    @Override
+    @SneakyThrows
+    public PooledContent encode(Object content) {
+        PooledBufferOutputStream output = new PooledBufferOutputStream(bufferPool, DEFAULT_INITIAL_CAPACITY, true);
+        try {
+            writerFor(content).writeValue(output, content);
+            return output.toContent();
+        } catch (Exception e) {
+            output.discard();
+            throw e;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public <T> T decode(byte[] bytes, int offset, int length, Type type) {
+        return readerFor(type).readValue(bytes, offset, length);
+    }
+
+    /**
+     * Gets the cached reader for the given type.
+     *
+     * @param type Class, generic type or Jackson type.
+     * @return Object reader for the type.
+     */
+    public ObjectReader readerFor(Type type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, t -> objectMapper.readerFor(constructType(t)));
+        }
+        return reader;
+    }
+
+    private JavaType constructType(Type type) {
+        return type instanceof JavaType ? (JavaType) type : objectMapper.getTypeFactory().constructType(type);
+    }
+
+    /**
+     * Gets the cached writer for the class of the given content.
+     *
+     * @param content Content to write.
+     * @return Object writer for the content.
+     */
+    public ObjectWriter writerFor(Object content) {
+        if (content == null) {
+            return objectMapper.writer();
+        }
+        return writers.computeIfAbsent(content.getClass(), objectMapper::writerFor);
+    }
+}
@@ -0,0 +1,106 @@
+package com.sepanniemi.http.client.codec;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream writing into a buffer borrowed from a {@link ByteBufferPool}, growing it by swapping to a larger
+ * pooled buffer when full.
+ * <p>
+ * Only buffers up to {@link #MAX_POOLED_CAPACITY} are borrowed from the pool, which is shared with the network layer
+ * and may not be bounded. Larger buffers are allocated on the heap and left to the garbage collector.
+ */
+public class PooledBufferOutputStream extends OutputStream {
+
+    /**
+     * Largest buffer borrowed from the pool, the default size of Jetty's network buffers.
+     */
+    public static final int MAX_POOLED_CAPACITY = 16 * 1024;
+
+    private final ByteBufferPool bufferPool;
+
+    private final boolean direct;
+
+    private ByteBuffer buffer;
+
+    public PooledBufferOutputStream(ByteBufferPool bufferPool, int initialCapacity, boolean direct) {
+        this.bufferPool = bufferPool;
+        this.direct = direct;
+        this.buffer = acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRemaining(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureRemaining(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer, consuming it. A direct buffer is copied without going through the heap.
+     *
+     * @param bytes Bytes to write.
+     */
+    public void write(ByteBuffer bytes) {
+        ensureRemaining(bytes.remaining());
+        buffer.put(bytes);
+    }
+
+    /**
+     * Completes the writing and hands the written content over to the caller.
+     *
+     * @return Written content, the caller is responsible for releasing it.
+     */
+    public PooledContent toContent() {
+        buffer.flip();
+        return new PooledContent(bufferPool, buffer);
+    }
+
+    /**
+     * Returns the buffer to the pool when the writing failed.
+     */
+    public void discard() {
+        release(bufferPool, buffer);
+    }
+
+    /**
+     * Returns a buffer to the pool unless it was allocated outside of it.
+     */
+    static void release(ByteBufferPool bufferPool, ByteBuffer buffer) {
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() < length) {
+            int required = buffer.position() + length;
+            ByteBuffer larger = acquire(Math.max(required, buffer.capacity() * 2));
+            buffer.flip();
+            larger.put(buffer);
+            release(bufferPool, buffer);
+            buffer = larger;
+        }
+    }
+
+    private ByteBuffer acquire(int capacity) {
+        if (capacity > MAX_POOLED_CAPACITY) {
+            return ByteBuffer.allocate(capacity);
+        }
+        ByteBuffer acquired = bufferPool.acquire(capacity, direct);
+        acquired.clear();
+        if (acquired.capacity() > MAX_POOLED_CAPACITY) {
+            // rounded up past the ceiling, it would not be recognized as pooled when released
+            bufferPool.release(acquired);
+            return ByteBuffer.allocate(capacity);
+        }
+        return acquired;
+    }
+}
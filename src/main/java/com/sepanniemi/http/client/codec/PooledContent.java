@@ -0,0 +1,108 @@
+package com.sepanniemi.http.client.codec;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded content held in a buffer borrowed from a {@link ByteBufferPool}.
+ * <p>
+ * The content is reference counted, starting from one reference held by its creator. The buffer is returned to the
+ * pool once every reference has been released, and must not be used after that as it may already be reused by
+ * another request.
+ */
+public class PooledContent {
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final ByteBufferPool bufferPool;
+
+    private final ByteBuffer buffer;
+
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    PooledContent(ByteBufferPool bufferPool, ByteBuffer buffer) {
+        this.bufferPool = bufferPool;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Gets the encoded content, ready to be read.
+     *
+     * @return Content buffer.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Compresses the content with gzip into a new pooled buffer, releasing this content.
+     *
+     * @param level Deflate level of the compression.
+     * @return Compressed content, the caller is responsible for releasing it.
+     */
+    public PooledContent gzip(int level) {
+        PooledBufferOutputStream output = new PooledBufferOutputStream(bufferPool, buffer.remaining() / 2 + 64, true);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output, COPY_BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            byte[] chunk = new byte[Math.min(buffer.remaining(), COPY_BUFFER_SIZE)];
+            ByteBuffer source = buffer.duplicate();
+            while (source.hasRemaining()) {
+                int length = Math.min(source.remaining(), chunk.length);
+                source.get(chunk, 0, length);
+                gzip.write(chunk, 0, length);
+            }
+        } catch (IOException e) {
+            output.discard();
+            throw new UncheckedIOException(e);
+        } finally {
+            release();
+        }
+        return output.toContent();
+    }
+
+    /**
+     * Adds a reference to the content, such as when handing it over to another consumer.
+     *
+     * @return This content.
+     * @throws IllegalStateException When the content has already been released.
+     */
+    public PooledContent retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Content already released.");
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * Releases a reference to the content, returning the buffer to the pool when it was the last one. Releasing
+     * content that has already been returned has no effect.
+     */
+    public void release() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return;
+            }
+        } while (!references.compareAndSet(count, count - 1));
+        if (count == 1) {
+            PooledBufferOutputStream.release(bufferPool, buffer);
+        }
+    }
+}
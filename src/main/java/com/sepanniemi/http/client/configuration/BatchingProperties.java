@@ -0,0 +1,22 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Collecting of individual calls into bulk requests.
+ */
+@Data
+@Accessors(chain = true)
+public class BatchingProperties {
+
+    /**
+     * Maximum number of calls in a batch, a full batch is sent immediately.
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * Time in milliseconds a batch waits for more calls after its first call before it is sent.
+     */
+    private long linger = 10;
+}
@@ -0,0 +1,22 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * In-memory cache of decoded responses, bounded by the size of the response bodies.
+ */
+@Data
+@Accessors(chain = true)
+public class CacheProperties {
+
+    /**
+     * Maximum total weight of the cached responses in bytes, least recently used responses are evicted over it.
+     */
+    private long maxWeight = 64 * 1024 * 1024;
+
+    /**
+     * Maximum weight of a single cached response in bytes, larger responses are not cached.
+     */
+    private long maxEntryWeight = 1024 * 1024;
+}
@@ -1,7 +1,12 @@
 package com.sepanniemi.http.client.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sepanniemi.http.client.codec.CodecRegistry;
+import com.sepanniemi.http.client.metrics.ClientMetrics;
+import com.sepanniemi.http.client.tracing.SpanExporter;
 import lombok.*;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
 
 /**
  * Created by sepanniemi on 28/02/2018.
@@ -14,4 +19,65 @@ public class ClientConfiguration {
     private ObjectMapper objectMapper = new ObjectMapper();
     @Builder.Default
     private ClientProperties clientProperties = new ClientProperties();
+    /**
+     * Pool of the network buffers, also lending the buffers of encoded request content and raw response bodies up to
+     * {@link com.sepanniemi.http.client.codec.PooledBufferOutputStream#MAX_POOLED_CAPACITY}.
+     */
+    @Builder.Default
+    private ByteBufferPool bufferPool = new MappedByteBufferPool();
+    /**
+     * Hedging of idempotent requests, disabled when not set.
+     */
+    private HedgingProperties hedgingProperties;
+    /**
+     * Retrying of failed requests, disabled when not set.
+     */
+    private RetryProperties retryProperties;
+    /**
+     * Adaptive limit of the requests in flight, not limited when not set.
+     */
+    private ConcurrencyLimitProperties concurrencyLimitProperties;
+    /**
+     * In-memory cache of GET responses, not cached when not set.
+     */
+    private CacheProperties cacheProperties;
+    /**
+     * Coalescing of identical GET and HEAD requests in flight, not coalesced when not set.
+     */
+    private CoalescingProperties coalescingProperties;
+    /**
+     * Compression of the response and request content, by default gzip and deflate responses are accepted and
+     * request bodies are sent uncompressed. Responses are decoded only as built into Jetty when not set.
+     */
+    @Builder.Default
+    private CompressionProperties compressionProperties = new CompressionProperties();
+    /**
+     * Balancing of the requests across the endpoints, applied when the client is built with endpoints or an
+     * endpoint resolver.
+     */
+    @Builder.Default
+    private LoadBalancingProperties loadBalancingProperties = new LoadBalancingProperties();
+    /**
+     * Metrics of the requests, circuit breaker and connection pools, not recorded by default.
+     */
+    @Builder.Default
+    private ClientMetrics metrics = ClientMetrics.NOOP;
+    /**
+     * Exporter of the client spans, a new trace is started for requests without a trace context when set.
+     * By default spans are not recorded and only the trace context of the caller is propagated.
+     */
+    @Builder.Default
+    private SpanExporter spanExporter = SpanExporter.NOOP;
+    /**
+     * Codecs for request and response content, by default JSON backed by the object mapper, Smile, CBOR and XML.
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile CodecRegistry codecs;
+
+    public CodecRegistry getCodecs() {
+        if (codecs == null) {
+            codecs = CodecRegistry.defaults(objectMapper, bufferPool);
+        }
+        return codecs;
+    }
 }
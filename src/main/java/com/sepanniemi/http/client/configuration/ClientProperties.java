@@ -10,6 +10,17 @@ import lombok.experimental.Accessors;
 @Accessors(chain = true)
 public class ClientProperties {
 
+    public enum Transport {
+        /**
+         * HTTP/1.1, one connection per in-flight request.
+         */
+        HTTP_1_1,
+        /**
+         * Cleartext HTTP/2 with prior knowledge, requests are multiplexed over the connections.
+         */
+        H2C
+    }
+
     /**
      * Connection timeout in milliseconds.
      */
@@ -19,4 +30,57 @@ public class ClientProperties {
      * Timeout for handling the request - response in milliseconds.
      */
     private int requestTimeout = 5000;
+
+    /**
+     * Name of the header the remaining time of a request deadline is forwarded in as milliseconds,
+     * the remaining time is not forwarded when null.
+     */
+    private String deadlineHeader;
+
+    /**
+     * Maximum number of bytes of an unsuccessful response body captured in its exception. The rest of the body
+     * is drained from the connection without buffering, zero discards the body altogether.
+     */
+    private int maxErrorBodySize = 64 * 1024;
+
+    /**
+     * Transport protocol used for the connections.
+     */
+    private Transport transport = Transport.HTTP_1_1;
+
+    /**
+     * Maximum number of connections opened to a single destination.
+     */
+    private int maxConnectionsPerDestination = 64;
+
+    /**
+     * Maximum number of requests queued for a single destination waiting for a connection.
+     */
+    private int maxRequestsQueuedPerDestination = 1024;
+
+    /**
+     * Time in milliseconds after which idle connections are closed, zero for no timeout.
+     */
+    private long idleTimeout = 0;
+
+    /**
+     * Number of selector threads handling the network I/O.
+     */
+    private int selectors = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Minimum number of threads in the pool executing the request and response processing.
+     */
+    private int minThreads = 8;
+
+    /**
+     * Maximum number of threads in the pool executing the request and response processing.
+     */
+    private int maxThreads = 200;
+
+    /**
+     * Whether the request and response processing is executed on virtual threads instead of the thread pool,
+     * requires Java 21 and the multi-release jar. The thread pool sizes do not apply to virtual threads.
+     */
+    private boolean virtualThreads;
 }
@@ -0,0 +1,22 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Coalescing of identical GET and HEAD requests in flight into a single exchange.
+ */
+@Data
+@Accessors(chain = true)
+public class CoalescingProperties {
+
+    /**
+     * Names of the request headers that must match, in addition to the method and the URI, for requests to be
+     * considered identical.
+     */
+    private Set<String> keyHeaders = new HashSet<>(Arrays.asList("Accept", "Authorization"));
+}
@@ -0,0 +1,34 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Negotiated compression of the response content and compression of the request bodies.
+ */
+@Data
+@Accessors(chain = true)
+public class CompressionProperties {
+
+    /**
+     * Content encodings accepted and decoded from the responses in the order of preference, gzip and deflate
+     * are supported. Responses are requested uncompressed when empty.
+     */
+    private Set<String> acceptEncodings = new LinkedHashSet<>(Arrays.asList("gzip", "deflate"));
+
+    /**
+     * Minimum size of an encoded request body in bytes for it to be sent gzip compressed, request bodies are not
+     * compressed when negative.
+     */
+    private int requestCompressionThreshold = -1;
+
+    /**
+     * Deflate level of the request body compression, from 1 for the fastest to 9 for the smallest.
+     */
+    private int requestCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+}
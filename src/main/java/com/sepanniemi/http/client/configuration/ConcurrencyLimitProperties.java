@@ -0,0 +1,38 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Adaptive limit of the requests in flight to each destination. The limit grows by one while requests complete in
+ * time and is cut by the backoff ratio when a request is slow, times out or finds the server overloaded.
+ */
+@Data
+@Accessors(chain = true)
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Limit of requests in flight before any have completed.
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 1;
+
+    private int maxLimit = 200;
+
+    /**
+     * Ratio the limit is multiplied with when it is decreased, between 0 and 1.
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Latency in milliseconds above which a completed request decreases the limit.
+     */
+    private long latencyThreshold = 1000;
+
+    /**
+     * Number of requests waiting for a slot once the limit is reached, further requests are rejected.
+     * Zero to reject right away.
+     */
+    private int maxQueued = 0;
+}
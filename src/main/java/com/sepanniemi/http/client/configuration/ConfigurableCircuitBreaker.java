@@ -1,5 +1,6 @@
 package com.sepanniemi.http.client.configuration;
 
+import com.sepanniemi.http.client.error.ConcurrencyLimitExceededException;
 import com.sepanniemi.http.client.error.Http4xxException;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
@@ -27,6 +28,8 @@ public class ConfigurableCircuitBreaker {
         this.name = name != null ? name : "http-client-circuit";
         this.ignoredExceptions = ignoredExceptions != null ? ignoredExceptions : new HashSet<>();
         this.ignoredExceptions.add(Http4xxException.class);
+        // requests shed by the concurrency limiter never reached the server
+        this.ignoredExceptions.add(ConcurrencyLimitExceededException.class);
         this.circuitProperties = circuitProperties != null ? circuitProperties : new CircuitProperties();
 
     }
@@ -0,0 +1,31 @@
+package com.sepanniemi.http.client.configuration;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import lombok.Builder;
+
+/**
+ * Rate limiter for a client, or shared by the requests of a route.
+ */
+public class ConfigurableRateLimiter {
+
+    private String name;
+
+    private RateLimitProperties rateLimitProperties;
+
+    @Builder
+    public ConfigurableRateLimiter(String name, RateLimitProperties rateLimitProperties) {
+        this.name = name != null ? name : "http-client-rate-limiter";
+        this.rateLimitProperties = rateLimitProperties != null ? rateLimitProperties : new RateLimitProperties();
+    }
+
+    public RateLimiter getRateLimiter() {
+        RateLimiterConfig config = RateLimiterConfig.custom()
+                .limitForPeriod(rateLimitProperties.getLimitForPeriod())
+                .limitRefreshPeriod(rateLimitProperties.getLimitRefreshPeriod())
+                .timeoutDuration(rateLimitProperties.getTimeout())
+                .build();
+
+        return RateLimiter.of(name, config);
+    }
+}
@@ -0,0 +1,39 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Hedging of idempotent requests: when no response has arrived after the hedging delay a duplicate request is
+ * sent and the first successful response is used.
+ */
+@Data
+@Accessors(chain = true)
+public class HedgingProperties {
+
+    /**
+     * Fixed delay in milliseconds before a duplicate request is sent, also used until enough latencies have been
+     * observed for the percentile delay.
+     */
+    private long delay = 100;
+
+    /**
+     * Percentile of the observed latencies used as the delay, between 0 and 1, or zero to always use the fixed delay.
+     */
+    private double percentile = 0;
+
+    /**
+     * Number of the most recent latencies the percentile is computed from.
+     */
+    private int latencyWindowSize = 1000;
+
+    /**
+     * Number of latencies observed before the percentile is used instead of the fixed delay.
+     */
+    private int minLatencySamples = 100;
+
+    /**
+     * Maximum number of duplicates sent per request.
+     */
+    private int maxHedges = 1;
+}
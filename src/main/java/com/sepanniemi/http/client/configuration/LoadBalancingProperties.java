@@ -0,0 +1,44 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Balancing of the requests across the endpoints of a client.
+ */
+@Data
+@Accessors(chain = true)
+public class LoadBalancingProperties {
+
+    public enum Strategy {
+        /**
+         * Endpoints are chosen in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * The endpoint with the fewest requests in flight is chosen.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Two random endpoints are compared by their moving average latency weighted by their requests in flight,
+         * and the cheaper one is chosen.
+         */
+        POWER_OF_TWO_CHOICES
+    }
+
+    /**
+     * Strategy choosing the endpoint of each exchange.
+     */
+    private Strategy strategy = Strategy.ROUND_ROBIN;
+
+    /**
+     * Time in milliseconds over which the latencies of an endpoint decay from its moving average.
+     */
+    private long latencyDecay = 10000;
+
+    /**
+     * Circuit breaker of each endpoint, an endpoint is ejected while its circuit is open and re-admitted once it
+     * lets requests through again. Endpoints are not ejected when not set.
+     */
+    private CircuitProperties circuitProperties = new CircuitProperties();
+}
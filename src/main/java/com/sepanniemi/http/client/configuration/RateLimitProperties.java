@@ -0,0 +1,37 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * Client side rate limit of the requests.
+ */
+@Data
+@Accessors(chain = true)
+public class RateLimitProperties {
+
+    /**
+     * Number of requests permitted per refresh period.
+     */
+    private int limitForPeriod = 50;
+
+    /**
+     * Period in milliseconds after which the permitted requests are refreshed.
+     */
+    private long limitRefreshPeriod = 1000;
+
+    /**
+     * Time in milliseconds a request waits for a permit without blocking, zero to fail fast when the limit is reached.
+     */
+    private long timeout = 0;
+
+    public Duration getLimitRefreshPeriod() {
+        return Duration.ofMillis(limitRefreshPeriod);
+    }
+
+    public Duration getTimeout() {
+        return Duration.ofMillis(timeout);
+    }
+}
@@ -0,0 +1,63 @@
+package com.sepanniemi.http.client.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Retrying of failed requests with exponential backoff, limited by a retry budget.
+ */
+@Data
+@Accessors(chain = true)
+public class RetryProperties {
+
+    /**
+     * Maximum number of attempts per request, including the first one.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Backoff in milliseconds before the first retry.
+     */
+    private long initialBackoff = 100;
+
+    /**
+     * Upper bound for the backoff in milliseconds.
+     */
+    private long maxBackoff = 10000;
+
+    /**
+     * Factor the backoff is multiplied with after each retry.
+     */
+    private double backoffMultiplier = 2;
+
+    /**
+     * Fraction of the backoff that is randomized, between 0 and 1, so that clients failing together do not
+     * retry together.
+     */
+    private double jitter = 0.5;
+
+    /**
+     * Response statuses that are retried.
+     */
+    private Set<Integer> retryableStatuses = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+
+    /**
+     * Longest Retry-After in milliseconds that is waited for, a response asking for a longer wait is not retried.
+     */
+    private long maxRetryAfter = 30000;
+
+    /**
+     * Retry tokens earned by each request. A retry spends one token, so with the default at most one retry is
+     * sent for every ten requests once the initial tokens are spent.
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * Maximum and initial number of retry tokens, allowing short bursts of retries.
+     */
+    private int budgetMaxTokens = 10;
+}
@@ -1,9 +1,9 @@
 package com.sepanniemi.http.client.content;
 
 import lombok.Builder;
-import lombok.Singular;
 import lombok.Value;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -14,6 +14,62 @@ import java.util.Map;
 public class CompletedResponse<T> {
     private int status;
     private T body;
-    @Singular
-    private Map<String,String> headers;
+    /**
+     * Headers of the response, read from the received header fields without copying them.
+     */
+    private ResponseHeaders headers;
+
+    /**
+     * Keeps the builder methods of the former map of headers, adapting the added headers into
+     * {@link ResponseHeaders}.
+     */
+    public static class CompletedResponseBuilder<T> {
+
+        private ResponseHeaders headers = ResponseHeaders.EMPTY;
+
+        private Map<String, String> addedHeaders;
+
+        /**
+         * Sets the headers of the response, empty by default.
+         */
+        public CompletedResponseBuilder<T> headers(ResponseHeaders headers) {
+            this.headers = headers;
+            return this;
+        }
+
+        /**
+         * @deprecated Build the headers with {@link ResponseHeaders#of(Map)} and set them with
+         * {@link #headers(ResponseHeaders)} instead.
+         */
+        @Deprecated
+        public CompletedResponseBuilder<T> header(String name, String value) {
+            addedHeaders().put(name, value);
+            return headers(ResponseHeaders.of(addedHeaders));
+        }
+
+        /**
+         * @deprecated Set the headers with {@link #headers(ResponseHeaders)} instead.
+         */
+        @Deprecated
+        public CompletedResponseBuilder<T> headers(Map<? extends String, ? extends String> headers) {
+            addedHeaders().putAll(headers);
+            return headers(ResponseHeaders.of(addedHeaders));
+        }
+
+        /**
+         * @deprecated Set the headers with {@link #headers(ResponseHeaders)} instead.
+         */
+        @Deprecated
+        public CompletedResponseBuilder<T> clearHeaders() {
+            addedHeaders = null;
+            return headers(ResponseHeaders.EMPTY);
+        }
+
+        private Map<String, String> addedHeaders() {
+            if (addedHeaders == null) {
+                addedHeaders = new LinkedHashMap<>();
+            }
+            return addedHeaders;
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package com.sepanniemi.http.client.content;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that aggregates response content chunks in place as they arrive.
+ * <p>
+ * Chunks are copied once, directly from the network buffer into the backing array, which
+ * can be pre-sized from the response Content-Length so that the complete body can be decoded
+ * from {@link #array()} without any further copies.
+ */
+public class ContentBuffer {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Upper bound for pre-sizing from a Content-Length header, so a bogus header cannot trigger a huge allocation.
+     */
+    private static final int MAX_PRESIZE_CAPACITY = 16 * 1024 * 1024;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private byte[] bytes;
+
+    private int size;
+
+    public ContentBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ContentBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(initialCapacity, 0)];
+    }
+
+    /**
+     * Ensures there is room for the expected amount of content, typically taken from the Content-Length header.
+     *
+     * @param expectedLength Expected total content length, negative if unknown.
+     */
+    public void reserve(long expectedLength) {
+        if (expectedLength > 0) {
+            ensureCapacity((int) Math.min(expectedLength, MAX_PRESIZE_CAPACITY));
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of the given buffer, consuming it.
+     *
+     * @param buffer Content chunk.
+     */
+    public void append(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (length > MAX_ARRAY_SIZE - size) {
+            throw new IllegalStateException("Content too large to be buffered, size=" + size + ", chunk=" + length);
+        }
+        ensureCapacity(size + length);
+        buffer.get(bytes, size, length);
+        size += length;
+    }
+
+    /**
+     * Discards the buffered content while keeping the allocated capacity for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the backing array. Only the first {@link #size()} bytes are valid content.
+     *
+     * @return Backing array.
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    /**
+     * Gets the content as an exactly sized array, copying only when the backing array is larger than the content.
+     *
+     * @return Content bytes, or null when no content was received.
+     */
+    public byte[] toByteArray() {
+        if (size == 0) {
+            return null;
+        }
+        return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            int doubled = bytes.length > MAX_ARRAY_SIZE / 2 ? MAX_ARRAY_SIZE : bytes.length * 2;
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, Math.max(doubled, DEFAULT_CAPACITY)));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.sepanniemi.http.client.content;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Case insensitive, read-only view of the response headers backed by the header fields received.
+ * <p>
+ * Headers are looked up from the fields when read, without copying them. The values of a repeated header such as
+ * {@code Set-Cookie} are joined with a comma as a map value and are available separately from
+ * {@link #getValues(String)}. A map of all the headers is built only when the headers are iterated.
+ */
+public class ResponseHeaders extends AbstractMap<String, String> {
+
+    public static final ResponseHeaders EMPTY = new ResponseHeaders(new HttpFields(0));
+
+    private final HttpFields fields;
+
+    private volatile Map<String, String> joined;
+
+    public ResponseHeaders(HttpFields fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Creates the headers from a map, such as for a response that was not received from a server.
+     *
+     * @param headers Header values by name.
+     * @return Response headers.
+     */
+    public static ResponseHeaders of(Map<String, String> headers) {
+        HttpFields fields = new HttpFields(headers.size());
+        headers.forEach(fields::add);
+        return new ResponseHeaders(fields);
+    }
+
+    /**
+     * Gets the value of a header, the values of a repeated header are joined with a comma.
+     *
+     * @param name Case insensitive header name.
+     * @return Header value, or null when the header is not present.
+     */
+    @Override
+    public String get(Object name) {
+        if (!(name instanceof String)) {
+            return null;
+        }
+        HttpField first = null;
+        StringBuilder values = null;
+        for (HttpField field : fields) {
+            if (field.getName().equalsIgnoreCase((String) name)) {
+                if (first == null) {
+                    first = field;
+                } else {
+                    if (values == null) {
+                        values = new StringBuilder(first.getValue());
+                    }
+                    values.append(", ").append(field.getValue());
+                }
+            }
+        }
+        return values != null ? values.toString() : first != null ? first.getValue() : null;
+    }
+
+    /**
+     * Gets the first value of a header.
+     *
+     * @param name Case insensitive header name.
+     * @return First header value, or null when the header is not present.
+     */
+    public String getFirst(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * Gets all the values of a repeated header in the order they were received.
+     *
+     * @param name Case insensitive header name.
+     * @return Header values, empty when the header is not present.
+     */
+    public List<String> getValues(String name) {
+        return Collections.unmodifiableList(fields.getValuesList(name));
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return name instanceof String && fields.containsKey((String) name);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return fields.size() == 0;
+    }
+
+    /**
+     * Creates headers with the given fields replacing the headers of the same name.
+     *
+     * @param replacements Header fields to replace, such as those of a not modified response.
+     * @return New response headers.
+     */
+    public ResponseHeaders with(HttpFields replacements) {
+        HttpFields merged = new HttpFields(fields);
+        for (String name : replacements.getFieldNamesCollection()) {
+            merged.remove(name);
+        }
+        merged.addAll(replacements);
+        return new ResponseHeaders(merged);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Map<String, String> all = joined;
+        if (all == null) {
+            all = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (HttpField field : fields) {
+                all.merge(field.getName(), field.getValue(), (first, second) -> first + ", " + second);
+            }
+            joined = all = Collections.unmodifiableMap(all);
+        }
+        return all.entrySet();
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Singular;
 import lombok.Value;
 
+import java.time.Instant;
 import java.util.Map;
 
 @Builder
@@ -13,4 +14,20 @@ public class ClientContext {
     @Singular
     Map<String,String> headers;
 
+    /**
+     * Absolute deadline of the caller, requests made in this context are not sent after it has passed.
+     */
+    Instant deadline;
+
+    /**
+     * W3C trace context of the caller in the {@code traceparent} header format, each exchange of a request made in
+     * this context is sent as its child span.
+     */
+    String traceParent;
+
+    /**
+     * Baggage propagated in the W3C {@code baggage} header.
+     */
+    @Singular("baggageItem")
+    Map<String,String> baggage;
 }
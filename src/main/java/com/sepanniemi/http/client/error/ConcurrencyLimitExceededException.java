@@ -0,0 +1,19 @@
+package com.sepanniemi.http.client.error;
+
+/**
+ * Signals that a request was not sent because the limit of requests in flight was reached.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+
+    /**
+     * Copies a failure for another caller, with the failure as the cause.
+     *
+     * @param failure Failure to copy.
+     */
+    public ConcurrencyLimitExceededException(ConcurrencyLimitExceededException failure) {
+        super(failure.getMessage(), failure);
+    }
+}
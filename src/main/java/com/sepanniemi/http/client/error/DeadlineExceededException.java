@@ -0,0 +1,12 @@
+package com.sepanniemi.http.client.error;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Signals that the deadline of a request had already passed before it was sent.
+ */
+public class DeadlineExceededException extends TimeoutException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
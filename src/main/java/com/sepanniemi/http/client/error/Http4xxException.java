@@ -1,5 +1,9 @@
 package com.sepanniemi.http.client.error;
 
+import com.sepanniemi.http.client.codec.Codec;
+
+import java.util.Map;
+
 /**
  * Created by sepanniemi on 17/02/2018.
  */
@@ -7,4 +11,22 @@ public class Http4xxException extends HttpException {
     public Http4xxException(String message, int status, byte[] body) {
         super(message, status, body);
     }
+
+    public Http4xxException(String message, int status, byte[] body, Map<String, String> headers) {
+        super(message, status, body, headers);
+    }
+
+    public Http4xxException(String message, int status, byte[] body, Map<String, String> headers, boolean truncated,
+                            Codec codec) {
+        super(message, status, body, headers, truncated, codec);
+    }
+
+    /**
+     * Copies a failure for another caller, with the failure as the cause.
+     *
+     * @param failure Failure to copy.
+     */
+    public Http4xxException(Http4xxException failure) {
+        super(failure);
+    }
 }
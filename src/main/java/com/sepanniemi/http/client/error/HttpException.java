@@ -1,22 +1,103 @@
 package com.sepanniemi.http.client.error;
 
+import com.sepanniemi.http.client.codec.Codec;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 
 @Data
+@ToString(exclude = "codec")
+@EqualsAndHashCode(callSuper = false, exclude = "codec")
 public class HttpException extends RuntimeException {
     private final int status;
     private byte[] body;
+    private Map<String, String> headers;
+
+    /**
+     * Whether the body was cut at the maximum error body size of the client.
+     */
+    private boolean truncated;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final transient Codec codec;
 
     public HttpException(String message, int status, byte[] body) {
+        this(message, status, body, Collections.emptyMap());
+    }
+
+    public HttpException(String message, int status, byte[] body, Map<String, String> headers) {
+        this(message, status, body, headers, false, null);
+    }
+
+    /**
+     * @param truncated Whether the body was cut at the maximum error body size.
+     * @param codec     Codec to decode the body with on demand, or null when it cannot be decoded.
+     */
+    public HttpException(String message, int status, byte[] body, Map<String, String> headers, boolean truncated,
+                         Codec codec) {
         super(message);
         this.status = status;
         this.body = body;
+        this.headers = headers;
+        this.truncated = truncated;
+        this.codec = codec;
+    }
+
+    /**
+     * Copies a failure for another caller, with the failure as the cause so that the copy can take the stack
+     * trace of the caller without modifying the shared failure.
+     *
+     * @param failure Failure to copy.
+     */
+    public HttpException(HttpException failure) {
+        super(failure.getMessage(), failure);
+        this.status = failure.status;
+        this.body = failure.body;
+        this.headers = failure.headers;
+        this.truncated = failure.truncated;
+        this.codec = failure.codec;
     }
 
     public Optional<byte[]> getBody() {
         return Optional.ofNullable(body);
     }
+
+    /**
+     * Decodes the body into a typed error with the codec of the response content type. The body is decoded
+     * only when asked for, so an error that is never inspected costs no decoding.
+     *
+     * @param errorType Type of the error.
+     * @param <T>       Type of the error.
+     * @return Decoded error, empty when there is no body, the body was truncated or there is no codec to decode it
+     * with.
+     */
+    public <T> Optional<T> getBody(Class<T> errorType) {
+        return getBody((Type) errorType);
+    }
+
+    /**
+     * Decodes the body into a generic typed error.
+     *
+     * @param errorType Type of the error.
+     * @param <T>       Type of the error.
+     * @return Decoded error, empty when there is no body, the body was truncated or there is no codec to decode it
+     * with.
+     * @see #getBody(Class)
+     */
+    public <T> Optional<T> getBody(Type errorType) {
+        if (body == null || body.length == 0 || truncated || codec == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(codec.decode(body, 0, body.length, errorType));
+    }
 }
@@ -0,0 +1,19 @@
+package com.sepanniemi.http.client.error;
+
+/**
+ * Signals that a request was not sent because every endpoint of the client was ejected or none was resolved.
+ */
+public class NoAvailableEndpointException extends RuntimeException {
+    public NoAvailableEndpointException(String message) {
+        super(message);
+    }
+
+    /**
+     * Copies a failure for another caller, with the failure as the cause.
+     *
+     * @param failure Failure to copy.
+     */
+    public NoAvailableEndpointException(NoAvailableEndpointException failure) {
+        super(failure.getMessage(), failure);
+    }
+}
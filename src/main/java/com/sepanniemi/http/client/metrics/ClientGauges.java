@@ -0,0 +1,42 @@
+package com.sepanniemi.http.client.metrics;
+
+/**
+ * Current state of a client, read when sampled.
+ */
+public interface ClientGauges {
+
+    /**
+     * Gets the number of requests sent and not yet completed.
+     *
+     * @return Requests in flight.
+     */
+    int getInFlight();
+
+    /**
+     * Gets the number of requests waiting for a connection, over all destinations.
+     *
+     * @return Queued requests.
+     */
+    int getQueuedRequests();
+
+    /**
+     * Gets the number of open connections, over all destinations.
+     *
+     * @return Open connections.
+     */
+    int getConnections();
+
+    /**
+     * Gets the number of connections handling a request, over all destinations. Only known for HTTP/1.1.
+     *
+     * @return Active connections.
+     */
+    int getActiveConnections();
+
+    /**
+     * Gets the number of idle pooled connections, over all destinations. Only known for HTTP/1.1.
+     *
+     * @return Idle connections.
+     */
+    int getIdleConnections();
+}
@@ -0,0 +1,63 @@
+package com.sepanniemi.http.client.metrics;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.net.URI;
+
+/**
+ * Receives the metrics of a client, such as a bridge to a metrics registry.
+ * <p>
+ * The methods are called on the I/O threads of the client for every exchange, so implementations should record
+ * the values without blocking or allocating. All methods do nothing by default.
+ */
+public interface ClientMetrics {
+
+    /**
+     * Metrics that are not recorded anywhere, the default.
+     */
+    ClientMetrics NOOP = new ClientMetrics() {
+    };
+
+    /**
+     * Called once when the client is created, with gauges of the requests in flight and of the connection pools.
+     *
+     * @param gauges Gauges of the client.
+     */
+    default void registerGauges(ClientGauges gauges) {
+    }
+
+    /**
+     * Called when an exchange completes, successfully or not.
+     *
+     * @param route               Route of the request, by default its method and path template.
+     * @param status              Status of the response, zero when no response was received.
+     * @param latencyNanos        Time from sending the request until the response completed.
+     * @param timeToFirstByteNanos Time from sending the request until the response began, negative when no
+     *                            response was received.
+     * @param responseBytes       Number of response content bytes received, before decoding when compressed.
+     * @param failure             Failure of the exchange, null when a response was received.
+     */
+    default void exchangeCompleted(String route, int status, long latencyNanos, long timeToFirstByteNanos,
+                                   long responseBytes, Throwable failure) {
+    }
+
+    /**
+     * Called when the circuit breaker of the client changes its state.
+     *
+     * @param name Name of the circuit breaker.
+     * @param from Previous state.
+     * @param to   New state.
+     */
+    default void circuitBreakerTransition(String name, CircuitBreaker.State from, CircuitBreaker.State to) {
+    }
+
+    /**
+     * Called when the circuit breaker of a load balanced endpoint changes its state.
+     *
+     * @param endpoint URI of the endpoint.
+     * @param from     Previous state.
+     * @param to       New state.
+     */
+    default void endpointCircuitBreakerTransition(URI endpoint, CircuitBreaker.State from, CircuitBreaker.State to) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.sepanniemi.http.client.metrics;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory metrics of a client by route, for when no metrics registry is used.
+ */
+public class SimpleClientMetrics implements ClientMetrics {
+
+    /**
+     * Route the exchanges are recorded under once the maximum number of routes has been reached.
+     */
+    public static final String OTHER_ROUTE = "other";
+
+    private static final int MAX_ROUTES = 1000;
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    private final LongAdder circuitBreakerTransitions = new LongAdder();
+
+    private final Map<URI, CircuitBreaker.State> endpointCircuitBreakerStates = new ConcurrentHashMap<>();
+
+    @Getter
+    private volatile ClientGauges gauges;
+
+    @Getter
+    private volatile CircuitBreaker.State circuitBreakerState;
+
+    @Override
+    public void registerGauges(ClientGauges gauges) {
+        this.gauges = gauges;
+    }
+
+    @Override
+    public void exchangeCompleted(String route, int status, long latencyNanos, long timeToFirstByteNanos,
+                                  long responseBytes, Throwable failure) {
+        RouteMetrics metrics = routes.get(route);
+        if (metrics == null) {
+            // keep the memory bounded when routes are made of unbounded values
+            metrics = routes.computeIfAbsent(routes.size() < MAX_ROUTES ? route : OTHER_ROUTE, name -> new RouteMetrics());
+        }
+        metrics.record(status, latencyNanos, timeToFirstByteNanos, responseBytes);
+    }
+
+    @Override
+    public void circuitBreakerTransition(String name, CircuitBreaker.State from, CircuitBreaker.State to) {
+        circuitBreakerState = to;
+        circuitBreakerTransitions.increment();
+    }
+
+    public long getCircuitBreakerTransitions() {
+        return circuitBreakerTransitions.sum();
+    }
+
+    @Override
+    public void endpointCircuitBreakerTransition(URI endpoint, CircuitBreaker.State from, CircuitBreaker.State to) {
+        endpointCircuitBreakerStates.put(endpoint, to);
+    }
+
+    /**
+     * Gets the state of the circuit breaker of a load balanced endpoint.
+     *
+     * @param endpoint URI of the endpoint.
+     * @return Latest state of the circuit breaker, or null when it has not changed its state.
+     */
+    public CircuitBreaker.State getEndpointCircuitBreakerState(URI endpoint) {
+        return endpointCircuitBreakerStates.get(endpoint);
+    }
+
+    /**
+     * Gets the metrics of the routes called so far.
+     *
+     * @return Metrics by route.
+     */
+    public Map<String, RouteMetrics> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    public RouteMetrics getRoute(String route) {
+        return routes.get(route);
+    }
+
+    public static class RouteMetrics {
+
+        @Getter
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        @Getter
+        private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+
+        /**
+         * Exchange counts by status class, index zero counting the exchanges failed without a response.
+         */
+        private final LongAdder[] statusClasses = {
+                new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()
+        };
+
+        private final LongAdder responseBytes = new LongAdder();
+
+        private void record(int status, long latencyNanos, long timeToFirstByteNanos, long bytes) {
+            latency.record(latencyNanos);
+            if (timeToFirstByteNanos >= 0) {
+                timeToFirstByte.record(timeToFirstByteNanos);
+            }
+            statusClasses[status / 100 < statusClasses.length ? status / 100 : 0].increment();
+            responseBytes.add(bytes);
+        }
+
+        /**
+         * Gets the number of exchanges completed with a status of the given class.
+         *
+         * @param statusClass Status class from 1 to 5, or zero for exchanges failed without a response.
+         * @return Number of exchanges.
+         */
+        public long getCount(int statusClass) {
+            return statusClasses[statusClass].sum();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.sepanniemi.http.client.tracing;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Completed span of a single exchange, with the durations of its phases in nanoseconds.
+ * <p>
+ * Phases that were not reached, such as the response phases of an exchange failed to connect, are negative.
+ * The queue phase covers waiting for a connection, including opening it.
+ */
+@Builder
+@Value
+public class ClientSpan {
+    String traceId;
+    String spanId;
+    String parentSpanId;
+    String name;
+    String method;
+    String url;
+    Instant start;
+    int status;
+    Throwable failure;
+    long queueNanos;
+    long sendNanos;
+    long timeToFirstByteNanos;
+    long bodyNanos;
+    long durationNanos;
+}
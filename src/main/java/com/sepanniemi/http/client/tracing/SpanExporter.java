@@ -0,0 +1,17 @@
+package com.sepanniemi.http.client.tracing;
+
+/**
+ * Receives the client spans of the exchanges, such as a bridge to a trace collector.
+ * <p>
+ * Called on the I/O threads of the client, so implementations should hand the spans off without blocking.
+ */
+public interface SpanExporter {
+
+    /**
+     * Exporter that drops the spans, the default. Trace context is still propagated with it.
+     */
+    SpanExporter NOOP = span -> {
+    };
+
+    void export(ClientSpan span);
+}
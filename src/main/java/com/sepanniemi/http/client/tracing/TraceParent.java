@@ -0,0 +1,93 @@
+package com.sepanniemi.http.client.tracing;
+
+import lombok.Value;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * W3C trace context of a span, as carried in the {@code traceparent} header.
+ */
+@Value
+public class TraceParent {
+
+    public static final String HEADER = "traceparent";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int SAMPLED = 0x01;
+
+    String traceId;
+
+    String spanId;
+
+    int flags;
+
+    /**
+     * Parses a {@code traceparent} header value.
+     *
+     * @param header Header value such as {@code 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01}.
+     * @return Trace context, or null when the value is not valid.
+     */
+    public static TraceParent parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        String[] parts = header.trim().split("-");
+        if (parts.length < 4 || parts[0].length() != 2 || "ff".equals(parts[0])
+                || !isHex(parts[1], 32) || !isHex(parts[2], 16) || !isHex(parts[3], 2)) {
+            return null;
+        }
+        return new TraceParent(parts[1], parts[2], Integer.parseInt(parts[3], 16));
+    }
+
+    /**
+     * Starts a new sampled trace.
+     *
+     * @return Root span context.
+     */
+    public static TraceParent newRoot() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceParent(hex(random.nextLong()) + hex(random.nextLong()), hex(random.nextLong()), SAMPLED);
+    }
+
+    /**
+     * Creates the context of a child span in the same trace.
+     *
+     * @return Child span context.
+     */
+    public TraceParent child() {
+        return new TraceParent(traceId, hex(ThreadLocalRandom.current().nextLong()), flags);
+    }
+
+    public boolean isSampled() {
+        return (flags & SAMPLED) != 0;
+    }
+
+    public String toHeader() {
+        return "00-" + traceId + "-" + spanId + "-" + HEX[(flags >> 4) & 0xf] + HEX[flags & 0xf];
+    }
+
+    private static String hex(long value) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static boolean isHex(String value, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        boolean nonZero = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+            nonZero |= c != '0';
+        }
+        return nonZero || length == 2;
+    }
+}
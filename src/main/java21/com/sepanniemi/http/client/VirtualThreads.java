@@ -0,0 +1,23 @@
+package com.sepanniemi.http.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor of virtual threads, the Java 21 version of the class in the multi-release jar.
+ */
+class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each task.
+     *
+     * @param name Prefix of the thread names.
+     * @return Executor.
+     */
+    static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
@@ -1,32 +1,75 @@
 package com.sepanniemi.http;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.github.tomakehurst.wiremock.global.RequestDelaySpec;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.sepanniemi.http.client.BatchSplitter;
+import com.sepanniemi.http.client.Endpoint;
 import com.sepanniemi.http.client.ReactiveHttpClient;
+import com.sepanniemi.http.client.RequestBatcher;
+import com.sepanniemi.http.client.codec.PooledContent;
+import com.sepanniemi.http.client.configuration.BatchingProperties;
+import com.sepanniemi.http.client.configuration.CacheProperties;
 import com.sepanniemi.http.client.configuration.CircuitProperties;
+import com.sepanniemi.http.client.configuration.CoalescingProperties;
+import com.sepanniemi.http.client.configuration.CompressionProperties;
 import com.sepanniemi.http.client.configuration.ClientConfiguration;
 import com.sepanniemi.http.client.configuration.ClientProperties;
+import com.sepanniemi.http.client.configuration.ConcurrencyLimitProperties;
 import com.sepanniemi.http.client.configuration.ConfigurableCircuitBreaker;
+import com.sepanniemi.http.client.configuration.ConfigurableRateLimiter;
+import com.sepanniemi.http.client.configuration.HedgingProperties;
+import com.sepanniemi.http.client.configuration.LoadBalancingProperties;
+import com.sepanniemi.http.client.configuration.RateLimitProperties;
+import com.sepanniemi.http.client.configuration.RetryProperties;
 import com.sepanniemi.http.client.content.CompletedResponse;
 import com.sepanniemi.http.client.content.Headers;
+import com.sepanniemi.http.client.context.ClientContext;
+import com.sepanniemi.http.client.error.ConcurrencyLimitExceededException;
+import com.sepanniemi.http.client.error.DeadlineExceededException;
 import com.sepanniemi.http.client.error.Http4xxException;
 import com.sepanniemi.http.client.error.Http5xxException;
+import com.sepanniemi.http.client.metrics.SimpleClientMetrics;
+import com.sepanniemi.http.client.tracing.ClientSpan;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerOpenException;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import org.eclipse.jetty.client.DuplexConnectionPool;
+import org.eclipse.jetty.client.HttpDestination;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RxHttpClientTests {
 
@@ -66,6 +109,52 @@ public class RxHttpClientTests {
         testSubscriber.assertValue(fb -> fb.getFoo().equals("bar"));
     }
 
+    @Test
+    @SneakyThrows
+    public void testGetXml() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .withHeader("Accept", equalTo("application/xml"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/xml")
+                        .withBody("<FooBar><foo>bar</foo></FooBar>")));
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .get("/test")
+                        .accept("application/xml")
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<FooBar> testSubscriber = new TestObserver<>();
+        foo.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertComplete();
+        testSubscriber.assertValue(fb -> fb.getFoo().equals("bar"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testGetGenericType() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("[{\"foo\":\"bar\"},{\"foo\":\"baz\"}]")));
+
+        Single<List<FooBar>> foos =
+                reactiveHttpClient
+                        .get("/test")
+                        .response(new TypeReference<List<FooBar>>() {
+                        })
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<List<FooBar>> testSubscriber = new TestObserver<>();
+        foos.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertComplete();
+        testSubscriber.assertValue(Arrays.asList(new FooBar("bar"), new FooBar("baz")));
+    }
+
     @Test
     @SneakyThrows
     public void testPost() {
@@ -92,6 +181,110 @@ public class RxHttpClientTests {
         testSubscriber.assertValue(fb -> fb.getFoo().equals("bar"));
     }
 
+    @Test
+    @SneakyThrows
+    public void testResubscribedPost() {
+        wireMockRule
+                .stubFor(post(urlEqualTo("/test"))
+                        .withRequestBody(equalToJson("{\"foo\":\"special foo\"}"))
+                        .willReturn(aResponse()
+                                .withStatus(200)
+                                .withBody("{\"foo\":\"bar\"}")));
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .post("/test")
+                        .json(new FooBar("special foo"))
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        // each subscription sends its own exchange with freshly encoded content
+        assertEquals(new FooBar("bar"), foo.blockingGet());
+        assertEquals(new FooBar("bar"), foo.blockingGet());
+        wireMockRule.verify(2, postRequestedFor(urlEqualTo("/test"))
+                .withRequestBody(equalToJson("{\"foo\":\"special foo\"}")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testPostJsonStream() {
+        wireMockRule
+                .stubFor(any(urlEqualTo("/test"))
+                        .withRequestBody(equalToJson("[{\"foo\":\"one\"},{\"foo\":\"two\"}]"))
+                        .willReturn(aResponse()
+                                .withStatus(200)
+                                .withBody("{\"foo\":\"bar\"}")));
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .post("/test")
+                        .jsonStream(Flowable.just(new FooBar("one"), new FooBar("two")))
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<FooBar> testSubscriber = new TestObserver<>();
+        foo.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertComplete();
+        testSubscriber.assertValue(fb -> fb.getFoo().equals("bar"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testJsonArrayStream() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("[{\"foo\":\"bar\"}, {\"foo\":\"[baz]\"},{\"foo\":\"qux\"}]")));
+
+        Flowable<FooBar> foos =
+                reactiveHttpClient
+                        .get("/test")
+                        .jsonArrayStream(FooBar.class);
+
+        TestSubscriber<FooBar> testSubscriber = new TestSubscriber<>(1);
+        foos.subscribe(testSubscriber);
+        testSubscriber.requestMore(2);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertComplete();
+        testSubscriber.assertValues(new FooBar("bar"), new FooBar("[baz]"), new FooBar("qux"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testNewlineDelimitedJsonStream() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}\n\n{\"foo\":\"baz\"}")));
+
+        Flowable<FooBar> foos =
+                reactiveHttpClient
+                        .get("/test")
+                        .jsonArrayStream(FooBar.class);
+
+        TestSubscriber<FooBar> testSubscriber = new TestSubscriber<>();
+        foos.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertComplete();
+        testSubscriber.assertValues(new FooBar("bar"), new FooBar("baz"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testStreamBadRequest() {
+        wireMockRule.stubFor(any(urlEqualTo("/test")).willReturn(aResponse().withStatus(400).withBody("{\"error\":\"bad_request\"}")));
+
+        TestSubscriber<ByteBuffer> testSubscriber = new TestSubscriber<>();
+        reactiveHttpClient
+                .get("/test")
+                .responseStream()
+                .subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertNoValues();
+        testSubscriber.assertError(Http4xxException.class);
+    }
+
     @Test
     @SneakyThrows
     public void testGetBadRequest() {
@@ -183,6 +376,654 @@ public class RxHttpClientTests {
         testSubscriber.assertError(TimeoutException.class);
     }
 
+    @Test
+    @SneakyThrows
+    public void testRequestTimeoutOverride() {
+        wireMockRule.stubFor(any(urlEqualTo("/test")).willReturn(
+                aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(3000)));
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .get("/test")
+                        .timeout(Duration.ofMillis(1000))
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<FooBar> testSubscriber = new TestObserver<>();
+        foo.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertError(TimeoutException.class);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testDeadlineExceeded() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .get("/test")
+                        .context(ClientContext.builder().deadline(Instant.now().minusMillis(1)).build())
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<FooBar> testSubscriber = new TestObserver<>();
+        foo.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertError(DeadlineExceededException.class);
+        wireMockRule.verify(0, anyRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testDisposeAbortsRequest() {
+        wireMockRule.stubFor(any(urlEqualTo("/test")).willReturn(
+                aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(5000)));
+
+        TestObserver<FooBar> testSubscriber =
+                reactiveHttpClient
+                        .get("/test")
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody)
+                        .test();
+
+        DuplexConnectionPool connectionPool = awaitConnectionPool();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (connectionPool.getActiveConnectionCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, connectionPool.getActiveConnectionCount());
+
+        testSubscriber.dispose();
+
+        deadline = System.currentTimeMillis() + 1000;
+        while (connectionPool.getActiveConnectionCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, connectionPool.getActiveConnectionCount());
+        testSubscriber.assertNotTerminated();
+    }
+
+    @SneakyThrows
+    private DuplexConnectionPool awaitConnectionPool() {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (reactiveHttpClient.getHttpClient().getDestinations().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        HttpDestination destination = (HttpDestination) reactiveHttpClient.getHttpClient().getDestinations().get(0);
+        return (DuplexConnectionPool) destination.getConnectionPool();
+    }
+
+    @Test
+    @SneakyThrows
+    public void testHedgedGet() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .inScenario("hedging")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("hedged")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"slow\"}")
+                        .withFixedDelay(3000)));
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .inScenario("hedging")
+                .whenScenarioStateIs("hedged")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"fast\"}")));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .hedgingProperties(new HedgingProperties().setDelay(200))
+                                        .build())
+                        .build();
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .get("/test")
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<FooBar> testSubscriber = new TestObserver<>();
+        foo.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertValue(fb -> fb.getFoo().equals("fast"));
+        assertEquals(1, reactiveHttpClient.getRequestHedging().getHedgesFired());
+        assertEquals(1, reactiveHttpClient.getRequestHedging().getHedgesWon());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRetryServiceUnavailable() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("recovered")
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withHeader("Retry-After", "1")));
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .retryProperties(new RetryProperties().setInitialBackoff(10))
+                                        .build())
+                        .build();
+
+        Single<FooBar> foo =
+                reactiveHttpClient
+                        .get("/test")
+                        .response(FooBar.class)
+                        .map(CompletedResponse::getBody);
+
+        TestObserver<FooBar> testSubscriber = new TestObserver<>();
+        foo.subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertValue(fb -> fb.getFoo().equals("bar"));
+        assertEquals(1, reactiveHttpClient.getRequestRetry().getRetries());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRateLimitExceeded() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .rateLimiter(
+                                ConfigurableRateLimiter.builder()
+                                        .rateLimitProperties(new RateLimitProperties()
+                                                .setLimitForPeriod(1)
+                                                .setLimitRefreshPeriod(60000))
+                                        .build()
+                                        .getRateLimiter())
+                        .build();
+
+        reactiveHttpClient.get("/test").response(FooBar.class).blockingGet();
+
+        TestObserver<CompletedResponse<FooBar>> testSubscriber =
+                reactiveHttpClient.get("/test").response(FooBar.class).test();
+        testSubscriber.awaitTerminalEvent();
+        testSubscriber.assertError(RequestNotPermitted.class);
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testConcurrencyLimitExceeded() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")
+                        .withFixedDelay(1000)));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .concurrencyLimitProperties(new ConcurrencyLimitProperties().setInitialLimit(1))
+                                        .build())
+                        .build();
+
+        TestObserver<CompletedResponse<FooBar>> first = reactiveHttpClient.get("/test").response(FooBar.class).test();
+        TestObserver<CompletedResponse<FooBar>> second = reactiveHttpClient.get("/test").response(FooBar.class).test();
+
+        second.awaitTerminalEvent();
+        second.assertError(ConcurrencyLimitExceededException.class);
+        first.awaitTerminalEvent();
+        first.assertComplete();
+        assertEquals(0, reactiveHttpClient.getConcurrencyLimiter().getInFlight());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testConcurrencyLimitedStream() {
+        wireMockRule.stubFor(any(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .concurrencyLimitProperties(new ConcurrencyLimitProperties().setInitialLimit(1))
+                                        .build())
+                        .build();
+
+        // the stream holds its slot until it is cancelled
+        TestSubscriber<ByteBuffer> stream = reactiveHttpClient.get("/test").responseStream().test(0);
+        TestObserver<CompletedResponse<FooBar>> rejected = reactiveHttpClient.get("/test").response(FooBar.class).test();
+        rejected.awaitTerminalEvent();
+        rejected.assertError(ConcurrencyLimitExceededException.class);
+
+        stream.cancel();
+        assertEquals(new FooBar("bar"), reactiveHttpClient.get("/test").execute(FooBar.class).getBody());
+        assertEquals(0, reactiveHttpClient.getConcurrencyLimiter().getInFlight());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testCachedGet() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .cacheProperties(new CacheProperties())
+                                        .build())
+                        .build();
+
+        FooBar first = reactiveHttpClient.get("/test").response(FooBar.class).blockingGet().getBody();
+        FooBar second = reactiveHttpClient.get("/test").response(FooBar.class).blockingGet().getBody();
+
+        assertEquals("bar", second.getFoo());
+        assertEquals(first, second);
+        assertEquals(1, reactiveHttpClient.getResponseCache().getHits());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testCachedGetPerAuthorization() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .withHeader("Authorization", equalTo("Bearer alice"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Cache-Control", "public, max-age=60")
+                        .withBody("{\"foo\":\"alice\"}")));
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .withHeader("Authorization", equalTo("Bearer bob"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withBody("{\"foo\":\"bob\"}")));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .cacheProperties(new CacheProperties())
+                                        .build())
+                        .build();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("alice", reactiveHttpClient.get("/test")
+                    .headers(Headers.builder().header("Authorization", "Bearer alice").build())
+                    .response(FooBar.class).blockingGet().getBody().getFoo());
+            assertEquals("bob", reactiveHttpClient.get("/test")
+                    .headers(Headers.builder().header("Authorization", "Bearer bob").build())
+                    .response(FooBar.class).blockingGet().getBody().getFoo());
+        }
+
+        // the public response is cached per authorization, the other one is not stored at all
+        assertEquals(1, reactiveHttpClient.getResponseCache().getHits());
+        assertEquals(1, reactiveHttpClient.getResponseCache().size());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/test")).withHeader("Authorization", equalTo("Bearer alice")));
+        wireMockRule.verify(2, getRequestedFor(urlEqualTo("/test")).withHeader("Authorization", equalTo("Bearer bob")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testCoalescedGet() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")
+                        .withFixedDelay(500)));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(
+                                ClientConfiguration.builder()
+                                        .coalescingProperties(new CoalescingProperties())
+                                        .build())
+                        .build();
+
+        TestObserver<CompletedResponse<FooBar>> first = reactiveHttpClient.get("/test").response(FooBar.class).test();
+        TestObserver<CompletedResponse<FooBar>> second = reactiveHttpClient.get("/test").response(FooBar.class).test();
+
+        first.awaitTerminalEvent();
+        second.awaitTerminalEvent();
+        assertEquals(first.values(), second.values());
+        assertEquals(1, reactiveHttpClient.getRequestCoalescing().getCoalesced());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testMetrics() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        SimpleClientMetrics metrics = new SimpleClientMetrics();
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(ClientConfiguration.builder().metrics(metrics).build())
+                        .build();
+
+        reactiveHttpClient.get("/test").response(FooBar.class).blockingGet();
+
+        SimpleClientMetrics.RouteMetrics route = metrics.getRoute("GET /test");
+        assertEquals(1, route.getCount(2));
+        assertEquals(13, route.getResponseBytes());
+        assertEquals(1, route.getLatency().getCount());
+        assertEquals(1, route.getTimeToFirstByte().getCount());
+        assertEquals(0, metrics.getGauges().getInFlight());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testMetricsDefaultRoute() {
+        wireMockRule.stubFor(get(urlMatching("/users/.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        SimpleClientMetrics metrics = new SimpleClientMetrics();
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(ClientConfiguration.builder().metrics(metrics).build())
+                        .build();
+
+        reactiveHttpClient.get("/users/123?expand=true").response(FooBar.class).blockingGet();
+        reactiveHttpClient.get("/users/7d444840-9dc0-11d1-b245-5ffdce74fad2").response(FooBar.class).blockingGet();
+        reactiveHttpClient.get("/users/456/settings").response(FooBar.class).blockingGet();
+
+        assertEquals(2, metrics.getRoute("GET /users/{id}").getCount(2));
+        assertEquals(1, metrics.getRoute("GET /users/{id}/settings").getCount(2));
+        assertEquals(2, metrics.getRoutes().size());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testTraceContextPropagation() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .withHeader("traceparent", matching("00-4bf92f3577b34da6a3ce929d0e0e4736-[0-9a-f]{16}-01"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        List<ClientSpan> spans = Collections.synchronizedList(new ArrayList<>());
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(ClientConfiguration.builder().spanExporter(spans::add).build())
+                        .build();
+
+        reactiveHttpClient
+                .get("/test")
+                .context(ClientContext.builder()
+                        .traceParent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")
+                        .build())
+                .response(FooBar.class)
+                .blockingGet();
+
+        assertEquals(1, spans.size());
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", spans.get(0).getTraceId());
+        assertEquals("00f067aa0ba902b7", spans.get(0).getParentSpanId());
+        assertEquals(200, spans.get(0).getStatus());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testCompression() {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("{\"foo\":\"bar\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        wireMockRule.stubFor(post(urlEqualTo("/test"))
+                .withHeader("Accept-Encoding", containing("gzip"))
+                .withHeader("Content-Encoding", equalTo("gzip"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Encoding", "gzip")
+                        .withBody(compressed.toByteArray())));
+
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(ClientConfiguration.builder()
+                                .compressionProperties(new CompressionProperties().setRequestCompressionThreshold(0))
+                                .build())
+                        .build();
+
+        CompletedResponse<FooBar> response =
+                reactiveHttpClient
+                        .post("/test")
+                        .json(new FooBar("bar"))
+                        .response(FooBar.class)
+                        .blockingGet();
+
+        assertEquals("bar", response.getBody().getFoo());
+        assertEquals(compressed.size(), reactiveHttpClient.getContentCompression().getCompressedBytes());
+        assertEquals(13, reactiveHttpClient.getContentCompression().getDecodedBytes());
+        assertEquals(13, reactiveHttpClient.getContentCompression().getRequestBytes());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testLoadBalancedEndpointEjected() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        SimpleClientMetrics metrics = new SimpleClientMetrics();
+        ReactiveHttpClient reactiveHttpClient =
+                ReactiveHttpClient
+                        .builder()
+                        .endpoints(Arrays.asList(URI.create("http://localhost:8888"), URI.create("http://localhost:1001")))
+                        .clientConfiguration(ClientConfiguration.builder()
+                                .loadBalancingProperties(new LoadBalancingProperties()
+                                        .setCircuitProperties(new CircuitProperties().setRingBufferSizeInClosedState(2)))
+                                .metrics(metrics)
+                                .build())
+                        .build();
+
+        List<Object> results = Flowable.range(0, 6)
+                .concatMap(i -> reactiveHttpClient
+                        .get("/test")
+                        .response(FooBar.class)
+                        .<Object>map(CompletedResponse::getBody)
+                        .onErrorReturn(Throwable::getClass)
+                        .toFlowable())
+                .toList()
+                .blockingGet();
+
+        assertEquals(Arrays.asList(new FooBar("bar"), ConnectException.class, new FooBar("bar"), ConnectException.class,
+                new FooBar("bar"), new FooBar("bar")), results);
+        Endpoint refused = reactiveHttpClient.getLoadBalancer().getEndpoints().get(1);
+        assertEquals(CircuitBreaker.State.OPEN, refused.getCircuitBreaker().getState());
+        assertEquals(CircuitBreaker.State.OPEN, metrics.getEndpointCircuitBreakerState(refused.getUri()));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBatchedPost() {
+        wireMockRule.stubFor(post(urlEqualTo("/test"))
+                .withRequestBody(equalToJson("[{\"foo\":\"one\"},{\"foo\":\"two\"}]"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("[{\"foo\":\"ONE\"},{\"foo\":\"TWO\"}]")));
+
+        RequestBatcher<FooBar, FooBar> batcher =
+                reactiveHttpClient.batcher(
+                        items -> reactiveHttpClient.post("/test").json(items),
+                        new TypeReference<List<FooBar>>() {
+                        },
+                        BatchSplitter.inOrder(),
+                        new BatchingProperties().setMaxBatchSize(2));
+
+        List<FooBar> results = Single.zip(
+                batcher.submit(new FooBar("one")).map(CompletedResponse::getBody),
+                batcher.submit(new FooBar("two")).map(CompletedResponse::getBody),
+                Arrays::asList)
+                .blockingGet();
+
+        assertEquals(Arrays.asList(new FooBar("ONE"), new FooBar("TWO")), results);
+        assertEquals(1, batcher.getBatches());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRepeatedResponseHeaders() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Set-Cookie", "a=1", "b=2")
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        CompletedResponse<FooBar> response =
+                reactiveHttpClient
+                        .get("/test")
+                        .response(FooBar.class)
+                        .blockingGet();
+
+        assertEquals(Arrays.asList("a=1", "b=2"), response.getHeaders().getValues("set-cookie"));
+        assertEquals("a=1, b=2", response.getHeaders().get("SET-COOKIE"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRawResponseBody() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        CompletedResponse<PooledContent> bytes =
+                reactiveHttpClient
+                        .get("/test")
+                        .responseBytes()
+                        .blockingGet();
+
+        assertEquals("{\"foo\":\"bar\"}", StandardCharsets.UTF_8.decode(bytes.getBody().getBuffer()).toString());
+        bytes.getBody().release();
+
+        Path file = Files.createTempFile("response", ".json");
+        CompletedResponse<Long> written =
+                reactiveHttpClient
+                        .get("/test")
+                        .responseTo(file)
+                        .blockingGet();
+
+        assertEquals(Long.valueOf(13), written.getBody());
+        assertEquals("{\"foo\":\"bar\"}", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Files.delete(file);
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBoundedErrorBody() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(400)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"foo\":\"invalid\"}")));
+
+        TestObserver<CompletedResponse<FooBar>> decoded = reactiveHttpClient.get("/test").response(FooBar.class).test();
+        decoded.awaitTerminalEvent();
+        Http4xxException error = (Http4xxException) decoded.errors().get(0);
+        assertFalse(error.isTruncated());
+        assertEquals(new FooBar("invalid"), error.getBody(FooBar.class).get());
+
+        ReactiveHttpClient boundedClient =
+                ReactiveHttpClient
+                        .builder()
+                        .baseUrl(URI.create("http://localhost:8888"))
+                        .clientConfiguration(ClientConfiguration.builder()
+                                .clientProperties(new ClientProperties().setMaxErrorBodySize(4))
+                                .build())
+                        .build();
+
+        try {
+            TestObserver<CompletedResponse<FooBar>> truncated = boundedClient.get("/test").response(FooBar.class).test();
+            truncated.awaitTerminalEvent();
+            error = (Http4xxException) truncated.errors().get(0);
+            assertTrue(error.isTruncated());
+            assertEquals("{\"fo", new String(error.getBody().get(), StandardCharsets.UTF_8));
+            assertFalse(error.getBody(FooBar.class).isPresent());
+        } finally {
+            boundedClient.getHttpClient().stop();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void testBlockingResponse() {
+        wireMockRule.stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{\"foo\":\"bar\"}")));
+        wireMockRule.stubFor(get(urlEqualTo("/missing"))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        assertEquals(new FooBar("bar"), reactiveHttpClient.get("/test").execute(FooBar.class).getBody());
+        assertEquals(new FooBar("bar"), reactiveHttpClient.get("/test").responseFuture(FooBar.class).get().getBody());
+
+        try {
+            reactiveHttpClient.get("/missing").execute(FooBar.class);
+            fail("Expected the response status to fail the call.");
+        } catch (Http4xxException e) {
+            assertEquals(404, e.getStatus());
+            // the failure is created on a client thread, it is the cause of a copy thrown with the caller's stack
+            assertTrue(e.getCause() instanceof Http4xxException);
+            assertEquals(0, e.getCause().getSuppressed().length);
+            assertTrue(Arrays.stream(e.getStackTrace())
+                    .anyMatch(element -> element.getMethodName().equals("testBlockingResponse")));
+        }
+    }
+
     @Test
     @SneakyThrows
     public void testConnectionRefusedFailure() {